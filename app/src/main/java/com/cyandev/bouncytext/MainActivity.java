@@ -25,6 +25,9 @@ public class MainActivity extends AppCompatActivity {
     private static final String DEFAULT_VALUE = "1000";
 
     private BouncyText mBouncyText;
+    private long mValue;
+    /** Whether the text displayed is {@link #mValue}, any other text is not incremented. */
+    private boolean mHasValue;
     private int[] mConfigValues = new int[3];
 
     @Override
@@ -33,7 +36,9 @@ public class MainActivity extends AppCompatActivity {
         setContentView(R.layout.activity_main);
 
         mBouncyText = findViewById(R.id.bouncy_text);
-        mBouncyText.setText(DEFAULT_VALUE);
+        mValue = Long.parseLong(DEFAULT_VALUE);
+        mHasValue = true;
+        mBouncyText.setValue(mValue);
 
         configureSeekBar(R.id.duration_seek, R.id.duration_text, 50, 1000, 450, 0);
         configureSeekBar(R.id.stagger_seek, R.id.stagger_text, 0, 500, 45, 1);
@@ -67,6 +72,13 @@ public class MainActivity extends AppCompatActivity {
                                     text = DEFAULT_VALUE;
                                 }
 
+                                try {
+                                    mValue = Long.parseLong(text);
+                                    mHasValue = true;
+                                } catch (NumberFormatException ignored) {
+                                    mHasValue = false;
+                                }
+
                                 mBouncyText.suppressAnimations(true);
                                 mBouncyText.setText(text);
                                 mBouncyText.suppressAnimations(false);
@@ -108,9 +120,12 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private void adjustValue(int delta) {
-        try {
-            mBouncyText.setText("" + (Integer.parseInt(mBouncyText.getText().toString()) + delta));
-        } catch (NumberFormatException ignored) {}
+        if (!mHasValue) {
+            return;
+        }
+
+        mValue += delta;
+        mBouncyText.setValue(mValue);
     }
 
     @SuppressLint("SetTextI18n")
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2017 Cyandev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.cyandev.widget.core;
+
+import java.util.Random;
+
+/**
+ * Pairs of texts the benchmarks transit between, for the change patterns a ticker sees.
+ */
+final class BenchmarkTexts {
+
+    /** Only the last digit changes, like a counter. */
+    static final String PATTERN_TAIL = "tail";
+    /** A digit is inserted on the left, like a counter gaining a digit. */
+    static final String PATTERN_PREPEND = "prepend";
+    /** Every digit may change. */
+    static final String PATTERN_RANDOM = "random";
+
+    /** Digits of a proportional font with a few different advances. */
+    static final GlyphAdvances ADVANCES = new GlyphAdvances() {
+        @Override
+        public float getAdvance(char ch) {
+            return 20.f + (ch & 3);
+        }
+    };
+
+    private BenchmarkTexts() {
+    }
+
+    /**
+     * Returns two texts of about given length differing by given pattern.
+     */
+    static String[] create(String pattern, int length) {
+        final Random random = new Random(length);
+        final String from = randomDigits(random, length);
+        final String to;
+        switch (pattern) {
+            case PATTERN_TAIL:
+                final char last = from.charAt(length - 1);
+                to = from.substring(0, length - 1) + (char) ('0' + (last - '0' + 1) % 10);
+                break;
+            case PATTERN_PREPEND:
+                to = "1" + from;
+                break;
+            case PATTERN_RANDOM:
+                to = randomDigits(random, length);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown pattern: " + pattern);
+        }
+        return new String[] { from, to };
+    }
+
+    private static String randomDigits(Random random, int length) {
+        final char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) ('0' + random.nextInt(10));
+        }
+        return new String(chars);
+    }
+
+}
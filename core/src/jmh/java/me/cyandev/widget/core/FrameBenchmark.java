@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2017 Cyandev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.cyandev.widget.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of evaluating one frame of a running transition, in the middle of it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FrameBenchmark {
+
+    private static final long FRAME_TIME = 200;
+
+    @Param({ "4", "64", "4096" })
+    int length;
+
+    @Param({ BenchmarkTexts.PATTERN_TAIL, BenchmarkTexts.PATTERN_PREPEND,
+            BenchmarkTexts.PATTERN_RANDOM })
+    String pattern;
+
+    private TransitionEngine mEngine;
+
+    @Setup
+    public void setUp() {
+        final String[] texts = BenchmarkTexts.create(pattern, length);
+        mEngine = new TransitionEngine();
+        // Without stagger, every changed glyph is in flight at the measured frame.
+        mEngine.setStagger(0);
+        mEngine.layout(texts[0], BenchmarkTexts.ADVANCES);
+        mEngine.transit(0, 0, false);
+        mEngine.layout(texts[1], BenchmarkTexts.ADVANCES);
+        mEngine.transit(0, 30.f, true);
+    }
+
+    @Benchmark
+    public boolean advance() {
+        return mEngine.advance(FRAME_TIME);
+    }
+
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2017 Cyandev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.cyandev.widget.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures text updates per second: laying out a text and diffing it into a transition, which is
+ * what a setText costs besides drawing. Run with "-prof gc" to see the allocation per update
+ * (gc.alloc.rate.norm), which should be zero once warmed up.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UpdateBenchmark {
+
+    @Param({ "4", "64", "4096" })
+    int length;
+
+    @Param({ BenchmarkTexts.PATTERN_TAIL, BenchmarkTexts.PATTERN_PREPEND,
+            BenchmarkTexts.PATTERN_RANDOM })
+    String pattern;
+
+    private TransitionEngine mEngine;
+    private String[] mTexts;
+    private int mUpdates;
+
+    @Setup
+    public void setUp() {
+        mTexts = BenchmarkTexts.create(pattern, length);
+        mEngine = new TransitionEngine();
+        mEngine.layout(mTexts[0], BenchmarkTexts.ADVANCES);
+        mEngine.transit(0, 0, false);
+        mUpdates = 0;
+    }
+
+    @Benchmark
+    public TransitionEngine update() {
+        final int update = ++mUpdates;
+        mEngine.layout(mTexts[update & 1], BenchmarkTexts.ADVANCES);
+        mEngine.transit(update * 16L, 30.f, true);
+        return mEngine;
+    }
+
+}
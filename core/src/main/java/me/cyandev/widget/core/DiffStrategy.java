@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2017 Cyandev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.cyandev.widget.core;
+
+/**
+ * A strategy that matches the characters of an old text to the ones of a new text, deciding which
+ * characters are kept (and possibly slide to a new position), which ones fly in and which ones fly
+ * out.
+ */
+public interface DiffStrategy {
+
+    /**
+     * Computes an edit script from the old text to the new text.
+     *
+     * <p>For every index {@code j} of the new text, the result stores the index of the old
+     * character that is kept as {@code newToOld[j]}, or -1 if the new character is inserted.
+     * Kept indices must be strictly increasing, old characters that are not referenced by the
+     * result are deleted.</p>
+     *
+     * @param oldChars the old characters
+     * @param oldLength the count of old characters
+     * @param newChars the new characters
+     * @param newLength the count of new characters
+     * @param newToOld the output array, with a length of at least {@code newLength}
+     */
+    void diff(char[] oldChars, int oldLength, char[] newChars, int newLength, int[] newToOld);
+
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright (C) 2017 Cyandev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.cyandev.widget.core;
+
+/**
+ * A source of character advances used to lay out glyphs, usually backed by a cache of
+ * measurements made with the platform text APIs.
+ */
+public interface GlyphAdvances {
+
+    /**
+     * Returns the horizontal advance of given character.
+     */
+    float getAdvance(char ch);
+
+}
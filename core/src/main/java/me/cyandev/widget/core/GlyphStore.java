@@ -0,0 +1,540 @@
+/*
+ * Copyright (C) 2017 Cyandev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.cyandev.widget.core;
+
+/**
+ * A growable store of glyphs kept as parallel primitive columns, one row per character. The
+ * columns are exposed for renderers to scan directly, only the first {@link #size} rows are valid.
+ *
+ * Note that the y coordinate stands for the "baseline" of a glyph, for
+ * more information see
+ * {@see <a href="https://developer.android.com/reference/android/graphics/Paint.FontMetrics.html">
+ * Paint.FontMetrics</a>}.
+ */
+public final class GlyphStore {
+
+    /** Easing curves that can be evaluated by {@link #advance(int, long)}. */
+    public static final int EASING_LINEAR = 0;
+    public static final int EASING_ACCELERATE_DECELERATE = 1;
+    /** Starts at full speed, used to carry on a glyph that is already moving. */
+    public static final int EASING_DECELERATE = 2;
+    /**
+     * A damped spring pulling the glyph to its end, see
+     * {@link #startSpring(int, float, float, float, float, float, float, long, int, float, float)}.
+     * It has no fixed duration, it settles once close enough to its end and slow enough.
+     */
+    public static final int EASING_SPRING = 3;
+
+    /** A spring settles once within this distance (in pixels) of its end... */
+    public static final float SPRING_SETTLE_DISTANCE = 0.5f;
+    /** ...and slower than this velocity (in pixels per second). */
+    public static final float SPRING_SETTLE_VELOCITY = 30f;
+
+    /** The start time of glyphs laid out without any timeline. */
+    public static final long NO_TIMELINE = Long.MIN_VALUE;
+
+    private static final int MIN_CAPACITY = 8;
+
+    public int size = 0;
+    /** How many times the columns have been reallocated to grow. */
+    public int growthCount = 0;
+
+    public char[] ch;
+    public float[] x;
+    public float[] y;
+    public float[] w;  // width
+    public float[] a;  // alpha
+
+    // Timeline of the running animations, evaluated by the frame clock.
+    public long[] startTime;
+    public int[] delay;
+    public int[] duration;
+    public int[] easing;
+    public float[] fromX;
+    public float[] fromY;
+    public float[] toX;
+    public float[] toY;
+    public float[] fromA;
+    public float[] toA;
+    public boolean[] animating;
+    // Velocity as of the last evaluation, in pixels per second.
+    public float[] velocityX;
+    public float[] velocityY;
+    // Spring timelines only: the velocity at start, the stiffness and the damping ratio.
+    public float[] startVelocityX;
+    public float[] startVelocityY;
+    public float[] stiffness;
+    public float[] dampingRatio;
+    // Digits rolling through the ones in between: y is the offset of the digit sequence.
+    public boolean[] rolling;
+
+    public GlyphStore() {
+        allocate(MIN_CAPACITY);
+    }
+
+    private void allocate(int capacity) {
+        ch = new char[capacity];
+        x = new float[capacity];
+        y = new float[capacity];
+        w = new float[capacity];
+        a = new float[capacity];
+        startTime = new long[capacity];
+        delay = new int[capacity];
+        duration = new int[capacity];
+        easing = new int[capacity];
+        fromX = new float[capacity];
+        fromY = new float[capacity];
+        toX = new float[capacity];
+        toY = new float[capacity];
+        fromA = new float[capacity];
+        toA = new float[capacity];
+        animating = new boolean[capacity];
+        velocityX = new float[capacity];
+        velocityY = new float[capacity];
+        startVelocityX = new float[capacity];
+        startVelocityY = new float[capacity];
+        stiffness = new float[capacity];
+        dampingRatio = new float[capacity];
+        rolling = new boolean[capacity];
+    }
+
+    public int capacity() {
+        return ch.length;
+    }
+
+    /**
+     * Makes sure the store can hold given count of glyphs, growing the columns geometrically.
+     */
+    public void ensureCapacity(int capacity) {
+        final int oldCapacity = ch.length;
+        if (capacity <= oldCapacity) {
+            return;
+        }
+
+        final char[] oldCh = ch;
+        final float[] oldX = x;
+        final float[] oldY = y;
+        final float[] oldW = w;
+        final float[] oldA = a;
+        final long[] oldStartTime = startTime;
+        final int[] oldDelay = delay;
+        final int[] oldDuration = duration;
+        final int[] oldEasing = easing;
+        final float[] oldFromX = fromX;
+        final float[] oldFromY = fromY;
+        final float[] oldToX = toX;
+        final float[] oldToY = toY;
+        final float[] oldFromA = fromA;
+        final float[] oldToA = toA;
+        final boolean[] oldAnimating = animating;
+        final float[] oldVelocityX = velocityX;
+        final float[] oldVelocityY = velocityY;
+        final float[] oldStartVelocityX = startVelocityX;
+        final float[] oldStartVelocityY = startVelocityY;
+        final float[] oldStiffness = stiffness;
+        final float[] oldDampingRatio = dampingRatio;
+        final boolean[] oldRolling = rolling;
+
+        allocate(Math.max(capacity, oldCapacity * 2));
+        growthCount++;
+
+        System.arraycopy(oldCh, 0, ch, 0, size);
+        System.arraycopy(oldX, 0, x, 0, size);
+        System.arraycopy(oldY, 0, y, 0, size);
+        System.arraycopy(oldW, 0, w, 0, size);
+        System.arraycopy(oldA, 0, a, 0, size);
+        System.arraycopy(oldStartTime, 0, startTime, 0, size);
+        System.arraycopy(oldDelay, 0, delay, 0, size);
+        System.arraycopy(oldDuration, 0, duration, 0, size);
+        System.arraycopy(oldEasing, 0, easing, 0, size);
+        System.arraycopy(oldFromX, 0, fromX, 0, size);
+        System.arraycopy(oldFromY, 0, fromY, 0, size);
+        System.arraycopy(oldToX, 0, toX, 0, size);
+        System.arraycopy(oldToY, 0, toY, 0, size);
+        System.arraycopy(oldFromA, 0, fromA, 0, size);
+        System.arraycopy(oldToA, 0, toA, 0, size);
+        System.arraycopy(oldAnimating, 0, animating, 0, size);
+        System.arraycopy(oldVelocityX, 0, velocityX, 0, size);
+        System.arraycopy(oldVelocityY, 0, velocityY, 0, size);
+        System.arraycopy(oldStartVelocityX, 0, startVelocityX, 0, size);
+        System.arraycopy(oldStartVelocityY, 0, startVelocityY, 0, size);
+        System.arraycopy(oldStiffness, 0, stiffness, 0, size);
+        System.arraycopy(oldDampingRatio, 0, dampingRatio, 0, size);
+        System.arraycopy(oldRolling, 0, rolling, 0, size);
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Appends a glyph at rest.
+     *
+     * @return the index of the new glyph
+     */
+    public int add(char ch, float x, float y, float w, float a) {
+        ensureCapacity(size + 1);
+        set(size, ch, x, y, w, a);
+        return size++;
+    }
+
+    public void set(int index, char ch, float x, float y, float w, float a) {
+        this.ch[index] = ch;
+        this.x[index] = x;
+        this.y[index] = y;
+        this.w[index] = w;
+        this.a[index] = a;
+        this.startTime[index] = NO_TIMELINE;
+        this.animating[index] = false;
+        this.rolling[index] = false;
+        this.velocityX[index] = 0;
+        this.velocityY[index] = 0;
+    }
+
+    /**
+     * Appends a copy of the glyph of another store.
+     *
+     * @return the index of the new glyph
+     */
+    public int add(GlyphStore src, int srcIndex) {
+        ensureCapacity(size + 1);
+        copy(src, srcIndex, size);
+        return size++;
+    }
+
+    /**
+     * Copies every column of a glyph from another store into given row.
+     */
+    public void copy(GlyphStore src, int srcIndex, int index) {
+        ch[index] = src.ch[srcIndex];
+        x[index] = src.x[srcIndex];
+        y[index] = src.y[srcIndex];
+        w[index] = src.w[srcIndex];
+        a[index] = src.a[srcIndex];
+        startTime[index] = src.startTime[srcIndex];
+        delay[index] = src.delay[srcIndex];
+        duration[index] = src.duration[srcIndex];
+        easing[index] = src.easing[srcIndex];
+        fromX[index] = src.fromX[srcIndex];
+        fromY[index] = src.fromY[srcIndex];
+        toX[index] = src.toX[srcIndex];
+        toY[index] = src.toY[srcIndex];
+        fromA[index] = src.fromA[srcIndex];
+        toA[index] = src.toA[srcIndex];
+        animating[index] = src.animating[srcIndex];
+        velocityX[index] = src.velocityX[srcIndex];
+        velocityY[index] = src.velocityY[srcIndex];
+        startVelocityX[index] = src.startVelocityX[srcIndex];
+        startVelocityY[index] = src.startVelocityY[srcIndex];
+        stiffness[index] = src.stiffness[srcIndex];
+        dampingRatio[index] = src.dampingRatio[srcIndex];
+        rolling[index] = src.rolling[srcIndex];
+    }
+
+    /**
+     * Returns the total advance of all glyphs.
+     */
+    public float totalWidth() {
+        float accWidth = 0;
+        for (int i = 0; i < size; i++) {
+            accWidth += w[i];
+        }
+        return accWidth;
+    }
+
+    /**
+     * Schedules a glyph moving on the frame clock.
+     */
+    public void startAnimation(int index, float fromX, float fromY, float toX, float toY,
+                        long startTime, int delay, int duration, int easing) {
+        this.startTime[index] = startTime;
+        this.delay[index] = delay;
+        this.duration[index] = duration;
+        this.easing[index] = easing;
+        this.fromX[index] = fromX;
+        this.fromY[index] = fromY;
+        this.toX[index] = toX;
+        this.toY[index] = toY;
+        this.fromA[index] = a[index];
+        this.toA[index] = a[index];
+        this.animating[index] = true;
+        this.startVelocityX[index] = 0;
+        this.startVelocityY[index] = 0;
+
+        x[index] = fromX;
+        y[index] = fromY;
+        velocityX[index] = 0;
+        velocityY[index] = 0;
+    }
+
+    /**
+     * Makes the alpha of a glyph whose timeline has just started go from and to given values,
+     * it keeps its current alpha otherwise.
+     */
+    public void fade(int index, float fromA, float toA) {
+        this.fromA[index] = fromA;
+        this.toA[index] = toA;
+        a[index] = fromA;
+    }
+
+    /**
+     * Starts a spring timeline, the glyph leaves its start position with given velocity and is
+     * pulled to its end.
+     *
+     * @param startVelocityX the velocity at start along x, in pixels per second
+     * @param startVelocityY the velocity at start along y, in pixels per second
+     * @param stiffness the stiffness of the spring, for a unit mass
+     * @param dampingRatio the damping ratio, below 1 to bounce
+     */
+    public void startSpring(int index, float fromX, float fromY, float toX, float toY,
+                            float startVelocityX, float startVelocityY, long startTime,
+                            int delay, float stiffness, float dampingRatio) {
+        startAnimation(index, fromX, fromY, toX, toY, startTime, delay, 0, EASING_SPRING);
+        this.startVelocityX[index] = startVelocityX;
+        this.startVelocityY[index] = startVelocityY;
+        this.stiffness[index] = stiffness;
+        this.dampingRatio[index] = dampingRatio;
+    }
+
+    /**
+     * Evaluates the timeline of a glyph at given frame time.
+     *
+     * @return true if the animation is still running
+     */
+    public boolean advance(int index, long frameTime) {
+        if (!animating[index]) {
+            return false;
+        }
+
+        final long elapsed = frameTime - startTime[index] - delay[index];
+        if (elapsed < 0) {
+            x[index] = fromX[index];
+            y[index] = fromY[index];
+            a[index] = fromA[index];
+            velocityX[index] = 0;
+            velocityY[index] = 0;
+            return true;
+        }
+        if (easing[index] == EASING_SPRING) {
+            return advanceSpring(index, elapsed / 1000f);
+        }
+        if (elapsed >= duration[index]) {
+            end(index);
+            return false;
+        }
+
+        final float input = (float) elapsed / duration[index];
+        final float fraction = ease(easing[index], input);
+        final float slope = easeSlope(easing[index], input) * 1000f / duration[index];
+        final float dx = toX[index] - fromX[index];
+        final float dy = toY[index] - fromY[index];
+        x[index] = fromX[index] + dx * fraction;
+        y[index] = fromY[index] + dy * fraction;
+        a[index] = fromA[index] + (toA[index] - fromA[index]) * fraction;
+        velocityX[index] = dx * slope;
+        velocityY[index] = dy * slope;
+        return true;
+    }
+
+    /**
+     * Evaluates a spring timeline in closed form, see {@link #springDisplacement(float, float,
+     * float, float, float)}.
+     */
+    private boolean advanceSpring(int index, float t) {
+        final float omega = (float) Math.sqrt(stiffness[index]);
+        final float zeta = dampingRatio[index];
+        final float dx = springDisplacement(fromX[index] - toX[index], startVelocityX[index],
+                omega, zeta, t);
+        final float vx = mSpringVelocity;
+        final float dy = springDisplacement(fromY[index] - toY[index], startVelocityY[index],
+                omega, zeta, t);
+        final float vy = mSpringVelocity;
+
+        // Springs have no fraction, the alpha follows the share of the distance covered, or a
+        // few periods of time for glyphs not moving.
+        final float distance = Math.abs(fromX[index] - toX[index])
+                + Math.abs(fromY[index] - toY[index]);
+        final float progress = distance > 0
+                ? 1 - (Math.abs(dx) + Math.abs(dy)) / distance
+                : t * omega / 4;
+
+        if (Math.abs(dx) < SPRING_SETTLE_DISTANCE && Math.abs(dy) < SPRING_SETTLE_DISTANCE
+                && Math.abs(vx) < SPRING_SETTLE_VELOCITY
+                && Math.abs(vy) < SPRING_SETTLE_VELOCITY
+                && (distance > 0 || progress >= 1)) {
+            end(index);
+            return false;
+        }
+
+        x[index] = toX[index] + dx;
+        y[index] = toY[index] + dy;
+        a[index] = fromA[index]
+                + (toA[index] - fromA[index]) * Math.max(0, Math.min(1, progress));
+        velocityX[index] = vx;
+        velocityY[index] = vy;
+        return true;
+    }
+
+    /** The velocity computed along with the last spring displacement. */
+    private float mSpringVelocity;
+
+    /**
+     * Returns the displacement from its rest position of a unit mass on a damped spring, and
+     * stores its velocity in {@link #mSpringVelocity}.
+     *
+     * @param d0 the displacement at start
+     * @param v0 the velocity at start
+     * @param omega the natural angular frequency, square root of the stiffness
+     * @param zeta the damping ratio
+     * @param t the time elapsed, in seconds
+     */
+    private float springDisplacement(float d0, float v0, float omega, float zeta, float t) {
+        if (zeta < 1) {
+            final double omegaD = omega * Math.sqrt(1 - zeta * zeta);
+            final double decay = Math.exp(-zeta * omega * t);
+            final double cos = Math.cos(omegaD * t);
+            final double sin = Math.sin(omegaD * t);
+            final double b = (v0 + zeta * omega * d0) / omegaD;
+            mSpringVelocity =
+                    (float) (decay * (v0 * cos - (d0 * omegaD + zeta * omega * b) * sin));
+            return (float) (decay * (d0 * cos + b * sin));
+        } else if (zeta == 1) {
+            final double decay = Math.exp(-omega * t);
+            final double b = v0 + omega * d0;
+            mSpringVelocity = (float) (decay * (v0 - omega * t * b));
+            return (float) (decay * (d0 + b * t));
+        } else {
+            final double root = omega * Math.sqrt(zeta * zeta - 1);
+            final double r1 = -zeta * omega + root;
+            final double r2 = -zeta * omega - root;
+            final double c2 = (v0 - r1 * d0) / (r2 - r1);
+            final double c1 = d0 - c2;
+            final double e1 = Math.exp(r1 * t);
+            final double e2 = Math.exp(r2 * t);
+            mSpringVelocity = (float) (r1 * c1 * e1 + r2 * c2 * e2);
+            return (float) (c1 * e1 + c2 * e2);
+        }
+    }
+
+    /**
+     * Returns how far a glyph on a spring may still get from its end along one axis, given its
+     * displacement and velocity: damping only takes energy away.
+     */
+    public static float springReach(float displacement, float velocity, float stiffness) {
+        return (float) Math.sqrt(displacement * displacement + velocity * velocity / stiffness);
+    }
+
+    /**
+     * Evaluates the timeline of a glyph at given time even if it has already ended, for seeking
+     * back and forth. Glyphs laid out without timeline are left at rest.
+     *
+     * @return true if the animation is running at given time
+     */
+    public boolean seek(int index, long time) {
+        if (startTime[index] == NO_TIMELINE) {
+            return false;
+        }
+
+        animating[index] = true;
+        return advance(index, time);
+    }
+
+    /**
+     * Jumps a glyph to the end state of its animation.
+     */
+    public void end(int index) {
+        if (animating[index]) {
+            x[index] = toX[index];
+            y[index] = toY[index];
+            a[index] = toA[index];
+            animating[index] = false;
+            velocityX[index] = 0;
+            velocityY[index] = 0;
+        }
+    }
+
+    /**
+     * Returns the digit a rolling glyph shows, fractional in between two digits, in [0, 10) with
+     * 10 wrapping to 0.
+     *
+     * @param digitHeight the offset between two consecutive digits of the sequence
+     */
+    public float rollPosition(int index, float digitHeight) {
+        float position = (ch[index] - '0' - y[index] / digitHeight) % 10;
+        if (position < 0) {
+            position += 10;
+        }
+        return position < 10 ? position : 0;
+    }
+
+    /**
+     * Moves a glyph horizontally along with its timeline, keeping its animation going.
+     */
+    public void offsetX(int index, float dx) {
+        x[index] += dx;
+        fromX[index] += dx;
+        toX[index] += dx;
+    }
+
+    /**
+     * Scales the positions, widths and velocities of every glyph about the origin, keeping their
+     * animations going. Springs keep their timing, their paths are scaled.
+     */
+    public void scale(float factor) {
+        for (int i = 0; i < size; i++) {
+            x[i] *= factor;
+            y[i] *= factor;
+            w[i] *= factor;
+            fromX[i] *= factor;
+            fromY[i] *= factor;
+            toX[i] *= factor;
+            toY[i] *= factor;
+            velocityX[i] *= factor;
+            velocityY[i] *= factor;
+            startVelocityX[i] *= factor;
+            startVelocityY[i] *= factor;
+        }
+    }
+
+    public static float ease(int easing, float input) {
+        switch (easing) {
+            case EASING_ACCELERATE_DECELERATE:
+                return (float) (Math.cos((input + 1) * Math.PI) / 2.0f) + 0.5f;
+            case EASING_DECELERATE:
+                return 1.0f - (1.0f - input) * (1.0f - input);
+            case EASING_LINEAR:
+            default:
+                return input;
+        }
+    }
+
+    /**
+     * Returns the derivative of an easing curve at given input.
+     */
+    public static float easeSlope(int easing, float input) {
+        switch (easing) {
+            case EASING_ACCELERATE_DECELERATE:
+                return (float) (-Math.sin((input + 1) * Math.PI) * Math.PI / 2.0f);
+            case EASING_DECELERATE:
+                return 2.0f * (1.0f - input);
+            case EASING_LINEAR:
+            default:
+                return 1.0f;
+        }
+    }
+
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2017 Cyandev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.cyandev.widget.core;
+
+/**
+ * A {@link DiffStrategy} producing a minimal edit script with the Myers O(ND) algorithm, so
+ * that only the changed characters are transited while the kept ones slide to their new
+ * positions.
+ *
+ * <p>The common prefix and suffix are matched up front, the rest is compared from the right so
+ * that ties keep the characters on the right in place, as a numeral usually changes on its
+ * lowest digits. When more edits than the configured maximum are needed, the remaining range
+ * falls back to {@link RightAlignedDiff}.</p>
+ *
+ * <p>Instances hold reusable buffers and are not thread-safe.</p>
+ */
+public final class MyersDiff implements DiffStrategy {
+
+    private static final int DEFAULT_MAX_EDITS = 64;
+
+    private final int mMaxEdits;
+
+    /** The furthest reaching x on each diagonal k, stored at k + mMaxEdits + 1. */
+    private int[] mV;
+    /** Snapshots of V for each round d, stored from d * d for diagonals -d..d. */
+    private int[] mTrace;
+
+    public MyersDiff() {
+        this(DEFAULT_MAX_EDITS);
+    }
+
+    /**
+     * @param maxEdits the maximum count of edits to search for before falling back to a right
+     *                 aligned matching
+     */
+    public MyersDiff(int maxEdits) {
+        if (maxEdits < 0) {
+            throw new IllegalArgumentException("The max edits must not be negative");
+        }
+        mMaxEdits = maxEdits;
+    }
+
+    @Override
+    public void diff(char[] oldChars, int oldLength, char[] newChars, int newLength,
+                     int[] newToOld) {
+        int suffix = 0;
+        while (suffix < oldLength && suffix < newLength
+                && oldChars[oldLength - 1 - suffix] == newChars[newLength - 1 - suffix]) {
+            newToOld[newLength - 1 - suffix] = oldLength - 1 - suffix;
+            suffix++;
+        }
+
+        int prefix = 0;
+        while (prefix < oldLength - suffix && prefix < newLength - suffix
+                && oldChars[prefix] == newChars[prefix]) {
+            newToOld[prefix] = prefix;
+            prefix++;
+        }
+
+        final int n = oldLength - suffix - prefix;
+        final int m = newLength - suffix - prefix;
+        for (int j = prefix; j < prefix + m; j++) {
+            newToOld[j] = -1;
+        }
+
+        if (n == 0 || m == 0) {
+            return;
+        }
+
+        if (!diffMiddle(oldChars, prefix, n, newChars, prefix, m, newToOld)) {
+            RightAlignedDiff.align(oldChars, prefix, n, newChars, prefix, m, newToOld);
+        }
+    }
+
+    /**
+     * Runs the greedy forward search over the reversed ranges and backtracks the found path.
+     *
+     * @return false if the edit distance exceeds the maximum count of edits
+     */
+    private boolean diffMiddle(char[] oldChars, int oldStart, int n, char[] newChars,
+                               int newStart, int m, int[] newToOld) {
+        final int oldEnd = oldStart + n - 1;
+        final int newEnd = newStart + m - 1;
+        final int max = Math.min(n + m, mMaxEdits);
+        final int offset = max + 1;
+
+        ensureBuffers(max);
+        final int[] v = mV;
+        final int[] trace = mTrace;
+        v[offset + 1] = 0;
+
+        int found = -1;
+        search:
+        for (int d = 0; d <= max; d++) {
+            final int base = d * d + d;
+            for (int k = -d; k <= d; k += 2) {
+                int x;
+                if (k == -d || (k != d && v[offset + k - 1] < v[offset + k + 1])) {
+                    x = v[offset + k + 1];
+                } else {
+                    x = v[offset + k - 1] + 1;
+                }
+                int y = x - k;
+                while (x < n && y < m && oldChars[oldEnd - x] == newChars[newEnd - y]) {
+                    x++;
+                    y++;
+                }
+                v[offset + k] = x;
+                trace[base + k] = x;
+
+                if (x >= n && y >= m) {
+                    found = d;
+                    break search;
+                }
+            }
+        }
+
+        if (found < 0) {
+            return false;
+        }
+
+        int x = n;
+        int y = m;
+        for (int d = found; d > 0; d--) {
+            final int k = x - y;
+            final int prevBase = (d - 1) * (d - 1) + (d - 1);
+            final int prevK;
+            if (k == -d || (k != d && trace[prevBase + k - 1] < trace[prevBase + k + 1])) {
+                prevK = k + 1;
+            } else {
+                prevK = k - 1;
+            }
+            final int prevX = trace[prevBase + prevK];
+            final int prevY = prevX - prevK;
+
+            // The snake following the edit.
+            final int snakeX = prevK == k + 1 ? prevX : prevX + 1;
+            while (x > snakeX) {
+                x--;
+                y--;
+                newToOld[newEnd - y] = oldEnd - x;
+            }
+
+            x = prevX;
+            y = prevY;
+        }
+
+        while (x > 0) {
+            x--;
+            y--;
+            newToOld[newEnd - y] = oldEnd - x;
+        }
+
+        return true;
+    }
+
+    private void ensureBuffers(int max) {
+        if (mV == null || mV.length < 2 * max + 3) {
+            mV = new int[2 * max + 3];
+        }
+        final int traceSize = (max + 1) * (max + 1) + max + 1;
+        if (mTrace == null || mTrace.length < traceSize) {
+            mTrace = new int[traceSize];
+        }
+    }
+
+}
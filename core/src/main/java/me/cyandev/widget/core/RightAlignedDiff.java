@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2017 Cyandev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.cyandev.widget.core;
+
+/**
+ * A {@link DiffStrategy} that aligns the old and the new text from the right, keeping only the
+ * characters that are equal at the same aligned position. This is cheap but inserting a single
+ * character on the left transits almost every character.
+ */
+public final class RightAlignedDiff implements DiffStrategy {
+
+    @Override
+    public void diff(char[] oldChars, int oldLength, char[] newChars, int newLength,
+                     int[] newToOld) {
+        align(oldChars, 0, oldLength, newChars, 0, newLength, newToOld);
+    }
+
+    /**
+     * Aligns the given ranges from the right, see {@link DiffStrategy#diff}.
+     */
+    static void align(char[] oldChars, int oldStart, int oldLength, char[] newChars, int newStart,
+                      int newLength, int[] newToOld) {
+        int i = oldStart + oldLength - 1;
+        int j = newStart + newLength - 1;
+        for (; i >= oldStart && j >= newStart; i--, j--) {
+            newToOld[j] = oldChars[i] == newChars[j] ? i : -1;
+        }
+        for (; j >= newStart; j--) {
+            newToOld[j] = -1;
+        }
+    }
+
+}
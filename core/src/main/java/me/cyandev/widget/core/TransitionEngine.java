@@ -0,0 +1,856 @@
+/*
+ * Copyright (C) 2017 Cyandev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.cyandev.widget.core;
+
+/**
+ * The platform independent part of a bouncy text: it lays out glyphs from their advances, diffs
+ * the displayed glyphs against a new text and evaluates the resulting per-glyph timelines on a
+ * frame clock. Renderers only have to draw {@link #getGlyphs()} and {@link #getLeavingGlyphs()}.
+ *
+ * <p>Glyph coordinates are relative to the start of the text and the baseline. Times are in
+ * milliseconds of any monotonic clock, as long as the same one is used for all calls.</p>
+ *
+ * <p>Instances are not thread-safe.</p>
+ */
+public final class TransitionEngine {
+
+    /** A medium stiffness, settling in about half a second. */
+    public static final float DEFAULT_SPRING_STIFFNESS = 1500f;
+    /** A noticeable bounce. */
+    public static final float DEFAULT_SPRING_DAMPING_RATIO = 0.5f;
+
+    /** Where glyph stores are obtained from and handed back to, and the edit script buffers. */
+    private TransitionResources mResources;
+
+    /** The glyph stores, null once handed back by {@link #recycleStores()}. */
+    private GlyphStore mGlyphs;
+    private GlyphStore mLeavingGlyphs;
+    /** Scratch store the next text is laid out into, swapped with the primary one when applied. */
+    private GlyphStore mPendingGlyphs;
+
+    private int mStagger = 45;
+    private int mDuration = 450;
+    private boolean mRetarget = false;
+
+    /** Whether glyphs fly in and out with their alpha animated. */
+    private boolean mFade = false;
+
+    /** Whether a digit replaced by another rolls through the ones in between. */
+    private boolean mRolling = false;
+
+    /** Whether glyphs move on springs rather than eased timelines of fixed duration. */
+    private boolean mSpring = false;
+    private float mSpringStiffness = DEFAULT_SPRING_STIFFNESS;
+    private float mSpringDampingRatio = DEFAULT_SPRING_DAMPING_RATIO;
+
+    /** The diff strategy given, or null to use the one of the resources. */
+    private DiffStrategy mDiffStrategy;
+
+    /** The frame clock: time of the transition in progress and whether any glyph moves. */
+    private long mTransitionStartTime;
+    private boolean mAnimating = false;
+    /** The earliest time a running glyph starts or keeps moving, valid while animating. */
+    private long mNextChangeTime;
+    /** The span of origins the moving glyphs still travel through, valid while animating. */
+    private float mDirtyLeft;
+    private float mDirtyTop;
+    private float mDirtyRight;
+    private float mDirtyBottom;
+    /** Whether the last frame pass moved any glyph. */
+    private boolean mFrameChanged;
+    /** The range of displayed glyphs animated by the last transition, others are at rest. */
+    private int mAnimatingStart = 0;
+    private int mAnimatingEnd = 0;
+
+    /** The horizontal span of glyph coordinates that is visible. */
+    private float mViewportLeft = -Float.MAX_VALUE;
+    private float mViewportRight = Float.MAX_VALUE;
+
+    /** Counts of the last transition, by edit operation. */
+    private int mLastKeptCount;
+    private int mLastMovedCount;
+    private int mLastInsertedCount;
+    private int mLastRemovedCount;
+
+    public TransitionEngine() {
+        this(null);
+    }
+
+    /**
+     * @param resources the resources to share, or null to use private ones
+     */
+    public TransitionEngine(TransitionResources resources) {
+        setResources(resources);
+    }
+
+    /**
+     * Sets the resources this engine obtains its storage from, null to use private ones. The
+     * glyphs displayed are kept.
+     */
+    public void setResources(TransitionResources resources) {
+        mResources = resources != null ? resources : new TransitionResources(0);
+    }
+
+    public TransitionResources getResources() {
+        return mResources;
+    }
+
+    /**
+     * Ends all animations and hands the glyph stores back to the resources, leaving nothing
+     * displayed. The stores are obtained again once needed.
+     */
+    public void recycleStores() {
+        if (mGlyphs == null) {
+            return;
+        }
+
+        end();
+        mResources.recycleStore(mGlyphs);
+        mResources.recycleStore(mLeavingGlyphs);
+        mResources.recycleStore(mPendingGlyphs);
+        mGlyphs = null;
+        mLeavingGlyphs = null;
+        mPendingGlyphs = null;
+    }
+
+    /**
+     * Returns whether the glyph stores have been handed back and nothing is displayed.
+     */
+    public boolean isRecycled() {
+        return mGlyphs == null;
+    }
+
+    private void ensureStores() {
+        if (mGlyphs == null) {
+            mGlyphs = mResources.obtainStore();
+            mLeavingGlyphs = mResources.obtainStore();
+            mPendingGlyphs = mResources.obtainStore();
+        }
+    }
+
+    /**
+     * Returns the displayed glyphs.
+     */
+    public GlyphStore getGlyphs() {
+        ensureStores();
+        return mGlyphs;
+    }
+
+    /**
+     * Returns the removed glyphs that are still flying out.
+     */
+    public GlyphStore getLeavingGlyphs() {
+        ensureStores();
+        return mLeavingGlyphs;
+    }
+
+    public void setDuration(int duration) {
+        mDuration = duration;
+    }
+
+    public int getDuration() {
+        return mDuration;
+    }
+
+    public void setStagger(int stagger) {
+        mStagger = stagger;
+    }
+
+    public int getStagger() {
+        return mStagger;
+    }
+
+    /**
+     * Sets whether a new text continues from the displayed state of a running transition instead
+     * of ending it first.
+     */
+    public void setRetarget(boolean retarget) {
+        mRetarget = retarget;
+    }
+
+    public boolean isRetarget() {
+        return mRetarget;
+    }
+
+    /**
+     * Sets whether glyphs flying in and out fade in and out as well, on the same timeline as
+     * their movement. Pass a zero travel to {@link #transit(long, float, boolean)} to fade them
+     * in place.
+     */
+    public void setFade(boolean fade) {
+        mFade = fade;
+    }
+
+    public boolean isFade() {
+        return mFade;
+    }
+
+    /**
+     * Sets whether a digit replaced by another rolls like an odometer, through the digits in
+     * between in the direction of travel, instead of flying out while the new one flies in. A
+     * rolling glyph stays in its cell, its y is the offset of the digit sequence, see
+     * {@link GlyphStore#rollPosition(int, float)}. Transitions without travel do not roll.
+     */
+    public void setRolling(boolean rolling) {
+        mRolling = rolling;
+    }
+
+    public boolean isRolling() {
+        return mRolling;
+    }
+
+    /**
+     * Sets whether glyphs move on damped springs, evaluated in closed form, instead of eased
+     * timelines. Springs always continue from the displayed state of a running transition and
+     * keep the velocity of moving glyphs, the duration is then unused.
+     */
+    public void setSpring(boolean spring) {
+        mSpring = spring;
+    }
+
+    public boolean isSpring() {
+        return mSpring;
+    }
+
+    /**
+     * Sets the stiffness of springs, for a unit mass: the higher, the faster.
+     */
+    public void setSpringStiffness(float stiffness) {
+        if (!(stiffness > 0)) {
+            throw new IllegalArgumentException("The stiffness must be positive.");
+        }
+
+        mSpringStiffness = stiffness;
+    }
+
+    public float getSpringStiffness() {
+        return mSpringStiffness;
+    }
+
+    /**
+     * Sets the damping ratio of springs: below 1 they bounce, 1 and above they do not. It must be
+     * positive, an undamped spring would never settle.
+     */
+    public void setSpringDampingRatio(float dampingRatio) {
+        if (!(dampingRatio > 0)) {
+            throw new IllegalArgumentException("The damping ratio must be positive.");
+        }
+
+        mSpringDampingRatio = dampingRatio;
+    }
+
+    public float getSpringDampingRatio() {
+        return mSpringDampingRatio;
+    }
+
+    public void setDiffStrategy(DiffStrategy strategy) {
+        if (strategy == null) {
+            throw new IllegalArgumentException("The diff strategy must not be null.");
+        }
+
+        mDiffStrategy = strategy;
+    }
+
+    public DiffStrategy getDiffStrategy() {
+        return mDiffStrategy != null ? mDiffStrategy : mResources.getDiffStrategy();
+    }
+
+    /**
+     * Sets the horizontal span of glyph coordinates that is visible. Glyphs staying entirely out
+     * of it are not animated by the next transitions, they jump to their ends and do not delay
+     * the visible ones. An empty span, left above right, culls every glyph.
+     */
+    public void setViewport(float left, float right) {
+        mViewportLeft = left;
+        mViewportRight = right;
+    }
+
+    /**
+     * Makes every glyph visible again, see {@link #setViewport(float, float)}.
+     */
+    public void clearViewport() {
+        setViewport(-Float.MAX_VALUE, Float.MAX_VALUE);
+    }
+
+    /**
+     * Lays out given text to be applied by {@link #transit(long, float, boolean)}, the store
+     * it goes into is reused across calls.
+     */
+    public void layout(CharSequence text, GlyphAdvances advances) {
+        ensureStores();
+        final GlyphStore out = mPendingGlyphs;
+
+        float x = 0;
+
+        final int length = text.length();
+        out.clear();
+        out.ensureCapacity(length);
+        for (int i = 0; i < length; i++) {
+            final char ch = text.charAt(i);
+            final float w = advances.getAdvance(ch);
+            out.add(ch, x, 0, w, 1);
+            x += w;
+        }
+    }
+
+    /**
+     * Lays out given text from the advances of its characters measured beforehand, one per
+     * character, to be applied by {@link #transit(long, float, boolean)}.
+     */
+    public void layout(CharSequence text, float[] advances) {
+        ensureStores();
+        final GlyphStore out = mPendingGlyphs;
+
+        float x = 0;
+
+        final int length = text.length();
+        out.clear();
+        out.ensureCapacity(length);
+        for (int i = 0; i < length; i++) {
+            final float w = advances[i];
+            out.add(text.charAt(i), x, 0, w, 1);
+            x += w;
+        }
+    }
+
+    /**
+     * Displays the text laid out by the last {@code layout} call.
+     *
+     * @param now the current time
+     * @param travel the vertical distance characters fly, positive to fly upward
+     * @param animate false to display the text directly
+     */
+    public void transit(long now, float travel, boolean animate) {
+        transit(now, travel, animate, 0);
+    }
+
+    /**
+     * Displays the text laid out by the last {@code layout} call, the first glyph changing
+     * after given delay. This staggers transitions started at once on several engines.
+     *
+     * @param startDelay the delay in milliseconds added to the stagger of every glyph, glyphs
+     *                   already moving carry on right away regardless
+     */
+    public void transit(long now, float travel, boolean animate, int startDelay) {
+        mLastKeptCount = 0;
+        mLastMovedCount = 0;
+        mLastInsertedCount = 0;
+        mLastRemovedCount = 0;
+
+        ensureStores();
+        if (!animate || mPendingGlyphs.size == 0 || mGlyphs.size == 0) {
+            end();
+            swapPendingGlyphs();
+            return;
+        }
+
+        if (mRetarget || mSpring) {
+            // Catch up with the displayed positions, they are where the glyphs head off from.
+            advance(now);
+        } else {
+            end();
+        }
+
+        performTransitions(now, travel, startDelay);
+    }
+
+    /**
+     * Advances every animating glyph to the given frame time in a single pass, dropping the
+     * leaving glyphs whose animations have finished.
+     *
+     * @return true if any animation is still running
+     */
+    public boolean advance(long frameTime) {
+        if (!mAnimating) {
+            // Glyphs seeked past their ends may still be kept, hidden, see seek(long).
+            if (mLeavingGlyphs != null) {
+                mLeavingGlyphs.clear();
+            }
+            return false;
+        }
+
+        boolean running = false;
+        boolean changed = false;
+        mNextChangeTime = Long.MAX_VALUE;
+        mDirtyLeft = Float.MAX_VALUE;
+        mDirtyTop = Float.MAX_VALUE;
+        mDirtyRight = -Float.MAX_VALUE;
+        mDirtyBottom = -Float.MAX_VALUE;
+
+        // Only the range of glyphs animated by the last transition is visited.
+        final GlyphStore glyphs = mGlyphs;
+        for (int i = mAnimatingStart, s = Math.min(mAnimatingEnd, glyphs.size); i < s; i++) {
+            changed |= isMovingAt(glyphs, i, frameTime);
+            if (glyphs.advance(i, frameTime)) {
+                includeDirtyGlyph(glyphs, i);
+                running = true;
+            }
+        }
+
+        // Compact the leaving glyphs in place, dropping the ones that have left.
+        final GlyphStore leaving = mLeavingGlyphs;
+        int kept = 0;
+        for (int i = 0, s = leaving.size; i < s; i++) {
+            changed |= isMovingAt(leaving, i, frameTime);
+            if (leaving.advance(i, frameTime)) {
+                if (kept != i) {
+                    leaving.copy(leaving, i, kept);
+                }
+                includeDirtyGlyph(leaving, kept);
+                kept++;
+            }
+        }
+        leaving.size = kept;
+        running |= kept > 0;
+
+        mAnimating = running;
+        mFrameChanged = changed;
+        return running;
+    }
+
+    /**
+     * Evaluates every glyph at the given time, which may come before the previous one: glyphs
+     * whose animations have ended are evaluated again and the leaving glyphs are kept. This makes
+     * frames reproducible at any time of the last transition, as long as {@link #advance(long)}
+     * is not called in between. Leaving glyphs that have left by given time are made transparent
+     * rather than dropped, so the glyphs drawn are the ones the frame clock would draw.
+     *
+     * @return true if any animation is running at given time
+     */
+    public boolean seek(long time) {
+        ensureStores();
+
+        boolean running = false;
+        mNextChangeTime = Long.MAX_VALUE;
+        mDirtyLeft = Float.MAX_VALUE;
+        mDirtyTop = Float.MAX_VALUE;
+        mDirtyRight = -Float.MAX_VALUE;
+        mDirtyBottom = -Float.MAX_VALUE;
+
+        final GlyphStore glyphs = mGlyphs;
+        for (int i = 0, s = glyphs.size; i < s; i++) {
+            if (glyphs.seek(i, time)) {
+                includeDirtyGlyph(glyphs, i);
+                running = true;
+            }
+        }
+
+        final GlyphStore leaving = mLeavingGlyphs;
+        for (int i = 0, s = leaving.size; i < s; i++) {
+            if (leaving.seek(i, time)) {
+                includeDirtyGlyph(leaving, i);
+                running = true;
+            } else {
+                leaving.a[i] = 0;
+            }
+        }
+
+        // Any glyph may have been rewound.
+        mAnimatingStart = 0;
+        mAnimatingEnd = glyphs.size;
+        mAnimating = running;
+        mFrameChanged = true;
+        return running;
+    }
+
+    private static boolean isMovingAt(GlyphStore glyphs, int index, long frameTime) {
+        return glyphs.animating[index]
+                && frameTime >= glyphs.startTime[index] + glyphs.delay[index];
+    }
+
+    /**
+     * Jumps every glyph to the end of its animation.
+     */
+    public void end() {
+        if (mGlyphs == null) {
+            return;
+        }
+
+        final GlyphStore glyphs = mGlyphs;
+        for (int i = mAnimatingStart, s = Math.min(mAnimatingEnd, glyphs.size); i < s; i++) {
+            glyphs.end(i);
+        }
+        mLeavingGlyphs.clear();
+
+        mAnimatingStart = 0;
+        mAnimatingEnd = 0;
+        mAnimating = false;
+    }
+
+    /**
+     * Scales every glyph about the origin, for text drawn at a new size. Running transitions
+     * carry on along scaled paths.
+     */
+    public void scale(float factor) {
+        if (mGlyphs == null) {
+            return;
+        }
+
+        mGlyphs.scale(factor);
+        mLeavingGlyphs.scale(factor);
+        if (mAnimating) {
+            mDirtyLeft *= factor;
+            mDirtyTop *= factor;
+            mDirtyRight *= factor;
+            mDirtyBottom *= factor;
+        }
+    }
+
+    /**
+     * Measures the displayed glyphs again with given advances, for text drawn with new metrics.
+     * Each glyph is moved by the offset of the position it rests at, so running transitions carry
+     * on to the new layout.
+     */
+    public void remeasure(GlyphAdvances advances) {
+        if (mGlyphs == null) {
+            return;
+        }
+
+        final GlyphStore glyphs = mGlyphs;
+        float x = 0;
+        for (int i = 0, s = glyphs.size; i < s; i++) {
+            final float restX = glyphs.animating[i] ? glyphs.toX[i] : glyphs.x[i];
+            glyphs.offsetX(i, x - restX);
+            glyphs.w[i] = advances.getAdvance(glyphs.ch[i]);
+            x += glyphs.w[i];
+        }
+
+        final GlyphStore leaving = mLeavingGlyphs;
+        for (int i = 0, s = leaving.size; i < s; i++) {
+            leaving.w[i] = advances.getAdvance(leaving.ch[i]);
+        }
+
+        if (mAnimating) {
+            // The glyphs moved, every one of them may be off the dirty area now.
+            mDirtyLeft = -Float.MAX_VALUE;
+            mDirtyRight = Float.MAX_VALUE;
+        }
+    }
+
+    public boolean isAnimating() {
+        return mAnimating;
+    }
+
+    /**
+     * Returns whether the last {@link #advance(long)} pass moved any glyph, false if every
+     * running glyph was still waiting for its delay.
+     */
+    public boolean isFrameChanged() {
+        return mFrameChanged;
+    }
+
+    /**
+     * Returns the count of glyphs the last transition kept in place.
+     */
+    public int getLastKeptCount() {
+        return mLastKeptCount;
+    }
+
+    /**
+     * Returns the count of glyphs the last transition kept but moved, including the retargeted
+     * ones and the ones moved out of the viewport without animation.
+     */
+    public int getLastMovedCount() {
+        return mLastMovedCount;
+    }
+
+    /**
+     * Returns the count of glyphs the last transition flew in.
+     */
+    public int getLastInsertedCount() {
+        return mLastInsertedCount;
+    }
+
+    /**
+     * Returns the count of glyphs the last transition flew out.
+     */
+    public int getLastRemovedCount() {
+        return mLastRemovedCount;
+    }
+
+    /**
+     * Returns how many times the glyph stores had to grow, a measure of the allocations made.
+     */
+    public int getStoreGrowthCount() {
+        ensureStores();
+        return mGlyphs.growthCount + mLeavingGlyphs.growthCount + mPendingGlyphs.growthCount;
+    }
+
+    /**
+     * Returns the earliest time a running glyph starts or keeps moving, as of the last
+     * {@link #advance(long)} returning true.
+     */
+    public long getNextChangeTime() {
+        return mNextChangeTime;
+    }
+
+    /**
+     * Returns the left edge of the area the moving glyphs sweep until their ends, as of the last
+     * {@link #advance(long)} returning true. Vertical edges are baselines.
+     */
+    public float getDirtyLeft() {
+        return mDirtyLeft;
+    }
+
+    public float getDirtyTop() {
+        return mDirtyTop;
+    }
+
+    public float getDirtyRight() {
+        return mDirtyRight;
+    }
+
+    public float getDirtyBottom() {
+        return mDirtyBottom;
+    }
+
+    /**
+     * Grows the dirty area with the path a moving glyph takes from its current position to its
+     * end, the easing curves never overshoot so the path stays in between. Also records when the
+     * glyph moves next.
+     */
+    private void includeDirtyGlyph(GlyphStore glyphs, int index) {
+        final long changeTime = glyphs.startTime[index] + glyphs.delay[index];
+        if (changeTime < mNextChangeTime) {
+            mNextChangeTime = changeTime;
+        }
+
+        final float x = glyphs.x[index];
+        final float toX = glyphs.toX[index];
+        final float toY = glyphs.toY[index];
+        // A rolling digit stays in its cell.
+        final boolean rolling = glyphs.rolling[index];
+        final float y = rolling ? toY : glyphs.y[index];
+        if (glyphs.easing[index] == GlyphStore.EASING_SPRING) {
+            // Springs overshoot, bound their path by how far their energy can take them.
+            final float k = glyphs.stiffness[index];
+            final float reachX = GlyphStore.springReach(x - toX, glyphs.velocityX[index], k);
+            final float reachY = rolling
+                    ? 0 : GlyphStore.springReach(y - toY, glyphs.velocityY[index], k);
+            mDirtyLeft = Math.min(mDirtyLeft, toX - reachX);
+            mDirtyTop = Math.min(mDirtyTop, toY - reachY);
+            mDirtyRight = Math.max(mDirtyRight, toX + reachX + glyphs.w[index]);
+            mDirtyBottom = Math.max(mDirtyBottom, toY + reachY);
+            return;
+        }
+        mDirtyLeft = Math.min(mDirtyLeft, Math.min(x, toX));
+        mDirtyTop = Math.min(mDirtyTop, Math.min(y, toY));
+        mDirtyRight = Math.max(mDirtyRight, Math.max(x, toX) + glyphs.w[index]);
+        mDirtyBottom = Math.max(mDirtyBottom, Math.max(y, toY));
+    }
+
+    /**
+     * Transits the displayed glyphs, at rest or still moving, to the pending glyphs.
+     */
+    private void performTransitions(long now, float travel, int startDelay) {
+        mTransitionStartTime = now;
+
+        final GlyphStore glyphs = mGlyphs;
+        final GlyphStore newGlyphs = mPendingGlyphs;
+        final GlyphStore leaving = mLeavingGlyphs;
+
+        final int[] newToOld = mResources.ensureNewToOld(newGlyphs.size);
+        final int[] oldToNew = mResources.ensureOldToNew(glyphs.size);
+        getDiffStrategy().diff(glyphs.ch, glyphs.size, newGlyphs.ch, newGlyphs.size, newToOld);
+        for (int i = 0; i < glyphs.size; i++) {
+            oldToNew[i] = -1;
+        }
+        for (int j = 0; j < newGlyphs.size; j++) {
+            if (newToOld[j] >= 0) {
+                oldToNew[newToOld[j]] = j;
+            }
+        }
+
+        int totalDelay = startDelay;
+        mAnimatingStart = newGlyphs.size;
+        mAnimatingEnd = 0;
+
+        // Walk the edit script from the right, a removal and an insertion at the same step
+        // share their delay just like a replaced character. Glyphs out of the viewport jump to
+        // their ends and take no step.
+        for (int i = glyphs.size - 1, j = newGlyphs.size - 1; i >= 0 || j >= 0; ) {
+            final boolean removing = i >= 0 && oldToNew[i] < 0;
+            final boolean inserting = j >= 0 && newToOld[j] < 0;
+            boolean visible = false;
+
+            if (!removing && !inserting) {
+                final float fromX = glyphs.x[i];
+                final float toX = newGlyphs.x[j];
+                if ((glyphs.animating[i] || fromX != toX)
+                        && !isInViewport(Math.min(fromX, toX), Math.max(fromX, toX),
+                        newGlyphs.w[j])) {
+                    // Moving out of sight, the laid out glyph is already at its end.
+                    mLastMovedCount++;
+                } else if (glyphs.animating[i]) {
+                    // Already moving, head to the new position right away without stopping.
+                    startAnimation(newGlyphs, j, fromX, glyphs.y[i], toX, newGlyphs.y[j],
+                            glyphs.velocityX[i], glyphs.velocityY[i], 0,
+                            GlyphStore.EASING_DECELERATE);
+                    // It may have been fading in or rolling as well.
+                    newGlyphs.fade(j, glyphs.a[i], 1);
+                    newGlyphs.rolling[j] = glyphs.rolling[i];
+                    mLastMovedCount++;
+                    visible = true;
+                } else if (fromX != toX) {
+                    // Kept, slide to the new position.
+                    startAnimation(newGlyphs, j, fromX, glyphs.y[i], toX, newGlyphs.y[j], 0, 0,
+                            totalDelay, GlyphStore.EASING_ACCELERATE_DECELERATE);
+                    mLastMovedCount++;
+                    visible = true;
+                } else {
+                    mLastKeptCount++;
+                    visible = isInViewport(toX, toX, newGlyphs.w[j]);
+                }
+                i--;
+                j--;
+            } else if (removing && inserting && mRolling && travel != 0
+                    && isDigit(glyphs.ch[i]) && isDigit(newGlyphs.ch[j])) {
+                final float fromX = glyphs.x[i];
+                final float toX = newGlyphs.x[j];
+                if (isInViewport(Math.min(fromX, toX), Math.max(fromX, toX), newGlyphs.w[j])) {
+                    rollDigit(glyphs, i, newGlyphs, j, travel, totalDelay);
+                    visible = true;
+                }
+                mLastRemovedCount++;
+                mLastInsertedCount++;
+                i--;
+                j--;
+            } else {
+                if (removing) {
+                    if (isInViewport(glyphs.x[i], glyphs.x[i], glyphs.w[i])) {
+                        // Animate out, from where it is if it was still moving.
+                        final boolean moving = glyphs.animating[i];
+                        final int t = leaving.add(glyphs, i);
+                        if (leaving.rolling[t]) {
+                            // Fly out from its cell, showing the digit it was rolling to.
+                            leaving.rolling[t] = false;
+                            leaving.y[t] = leaving.toY[t];
+                            leaving.velocityY[t] = 0;
+                        }
+                        startAnimation(leaving, t, leaving.x[t], leaving.y[t], leaving.x[t],
+                                -travel, leaving.velocityX[t], leaving.velocityY[t],
+                                moving ? 0 : totalDelay,
+                                moving ? GlyphStore.EASING_DECELERATE
+                                        : GlyphStore.EASING_ACCELERATE_DECELERATE);
+                        if (mFade) {
+                            leaving.fade(t, leaving.a[t], 0);
+                        }
+                        visible = true;
+                    }
+                    mLastRemovedCount++;
+                    i--;
+                }
+                if (inserting) {
+                    if (isInViewport(newGlyphs.x[j], newGlyphs.x[j], newGlyphs.w[j])) {
+                        // Animate in
+                        startAnimation(newGlyphs, j, newGlyphs.x[j], newGlyphs.y[j] + travel,
+                                newGlyphs.x[j], newGlyphs.y[j], 0, 0, totalDelay,
+                                GlyphStore.EASING_ACCELERATE_DECELERATE);
+                        if (mFade) {
+                            newGlyphs.fade(j, 0, 1);
+                        }
+                        visible = true;
+                    }
+                    mLastInsertedCount++;
+                    j--;
+                }
+            }
+
+            if (visible) {
+                totalDelay += mStagger;
+            }
+        }
+
+        swapPendingGlyphs();
+    }
+
+    /**
+     * Rolls a digit replacing another one from the digit that is displayed, following the
+     * column if it moves. A digit still moving carries on right away.
+     */
+    private void rollDigit(GlyphStore glyphs, int i, GlyphStore newGlyphs, int j, float travel,
+                           int delay) {
+        final float from = glyphs.rollPosition(i, Math.abs(travel));
+        final float to = newGlyphs.ch[j] - '0';
+        // The count of digits to roll through, in the direction of travel.
+        float steps = (to - from) * Math.signum(travel) % 10;
+        if (steps < 0) {
+            steps += 10;
+        }
+
+        final boolean moving = glyphs.animating[i];
+        startAnimation(newGlyphs, j, glyphs.x[i], newGlyphs.y[j] + steps * travel,
+                newGlyphs.x[j], newGlyphs.y[j], glyphs.velocityX[i],
+                glyphs.rolling[i] ? glyphs.velocityY[i] : 0, moving ? 0 : delay,
+                moving ? GlyphStore.EASING_DECELERATE : GlyphStore.EASING_ACCELERATE_DECELERATE);
+        newGlyphs.rolling[j] = true;
+    }
+
+    private static boolean isDigit(char ch) {
+        return ch >= '0' && ch <= '9';
+    }
+
+    /**
+     * Schedule a glyph moving on the frame clock.
+     * @param glyphs the store holding the glyph to be animated
+     * @param index the index of the glyph
+     * @param fromX the start x coordinate
+     * @param fromY the start y coordinate
+     * @param toX the end x coordinate
+     * @param toY the end y coordinate
+     * @param velocityX the current velocity along x, carried on by springs
+     * @param velocityY the current velocity along y, carried on by springs
+     * @param delay the delay of animation
+     * @param easing the easing curve, see {@link GlyphStore#ease(int, float)}, replaced by a
+     *               spring in spring mode
+     */
+    private void startAnimation(GlyphStore glyphs, int index, float fromX, float fromY, float toX,
+                                float toY, float velocityX, float velocityY, int delay,
+                                int easing) {
+        if (mSpring) {
+            glyphs.startSpring(index, fromX, fromY, toX, toY, velocityX, velocityY,
+                    mTransitionStartTime, delay, mSpringStiffness, mSpringDampingRatio);
+        } else {
+            glyphs.startAnimation(index, fromX, fromY, toX, toY, mTransitionStartTime, delay,
+                    mDuration, easing);
+        }
+        mAnimating = true;
+        if (glyphs == mPendingGlyphs) {
+            mAnimatingStart = Math.min(mAnimatingStart, index);
+            mAnimatingEnd = Math.max(mAnimatingEnd, index + 1);
+        }
+    }
+
+    /**
+     * Returns whether a glyph of given width sweeping from left to right ever shows in the
+     * viewport.
+     */
+    private boolean isInViewport(float left, float right, float width) {
+        return right + width >= mViewportLeft && left <= mViewportRight;
+    }
+
+    /**
+     * Makes the laid out pending glyphs displayed, keeping the old store for reuse.
+     */
+    private void swapPendingGlyphs() {
+        final GlyphStore glyphs = mGlyphs;
+        mGlyphs = mPendingGlyphs;
+        mPendingGlyphs = glyphs;
+        mPendingGlyphs.clear();
+    }
+
+}
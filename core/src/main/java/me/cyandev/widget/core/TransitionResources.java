@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2017 Cyandev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.cyandev.widget.core;
+
+/**
+ * Storage that can be shared by the {@link TransitionEngine}s of one thread: a pool of glyph
+ * stores handed back by idle engines, the edit script buffers used while diffing and a default
+ * diff strategy with its own scratch buffers.
+ *
+ * <p>Many engines joining the same resources allocate nothing once the pool is warmed up, even
+ * when they release their stores and obtain new ones as views are recycled.</p>
+ *
+ * <p>Instances are not thread-safe.</p>
+ */
+public final class TransitionResources {
+
+    private final GlyphStore[] mStores;
+    private int mStoreCount = 0;
+
+    private final DiffStrategy mDiffStrategy = new MyersDiff();
+
+    /** Edit script buffers, only used during a single transition. */
+    private int[] mNewToOld = new int[0];
+    private int[] mOldToNew = new int[0];
+
+    /**
+     * @param maxPooledStores the count of released glyph stores kept for reuse
+     */
+    public TransitionResources(int maxPooledStores) {
+        if (maxPooledStores < 0) {
+            throw new IllegalArgumentException("The pool size must not be negative");
+        }
+
+        mStores = new GlyphStore[maxPooledStores];
+    }
+
+    /**
+     * Returns an empty glyph store, a pooled one if available.
+     */
+    public GlyphStore obtainStore() {
+        if (mStoreCount == 0) {
+            return new GlyphStore();
+        }
+
+        final GlyphStore store = mStores[--mStoreCount];
+        mStores[mStoreCount] = null;
+        store.clear();
+        return store;
+    }
+
+    /**
+     * Hands back a glyph store that is no longer used, it is dropped if the pool is full.
+     */
+    public void recycleStore(GlyphStore store) {
+        if (mStoreCount < mStores.length) {
+            mStores[mStoreCount++] = store;
+        }
+    }
+
+    /**
+     * Returns the count of glyph stores ready for reuse.
+     */
+    public int getPooledStoreCount() {
+        return mStoreCount;
+    }
+
+    /**
+     * Returns the diff strategy used by engines that have not been given one.
+     */
+    public DiffStrategy getDiffStrategy() {
+        return mDiffStrategy;
+    }
+
+    /**
+     * Returns the old-to-new buffer, at least as long as given length.
+     */
+    int[] ensureOldToNew(int length) {
+        if (mOldToNew.length < length) {
+            mOldToNew = new int[Math.max(length, mOldToNew.length * 2)];
+        }
+        return mOldToNew;
+    }
+
+    /**
+     * Returns the new-to-old buffer, at least as long as given length.
+     */
+    int[] ensureNewToOld(int length) {
+        if (mNewToOld.length < length) {
+            mNewToOld = new int[Math.max(length, mNewToOld.length * 2)];
+        }
+        return mNewToOld;
+    }
+
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2017 Cyandev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.cyandev.widget.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class GlyphStoreTest {
+
+    private static final float EPSILON = 1e-4f;
+
+    @Test
+    public void easingCurvesGoFromZeroToOne() {
+        final int[] easings = { GlyphStore.EASING_LINEAR, GlyphStore.EASING_ACCELERATE_DECELERATE,
+                GlyphStore.EASING_DECELERATE };
+        for (int easing : easings) {
+            assertEquals(0, GlyphStore.ease(easing, 0), EPSILON);
+            assertEquals(1, GlyphStore.ease(easing, 1), EPSILON);
+            float last = 0;
+            for (int i = 1; i <= 100; i++) {
+                final float value = GlyphStore.ease(easing, i / 100f);
+                assertTrue("easing curves must not overshoot", value >= last && value <= 1);
+                last = value;
+            }
+        }
+        assertEquals(0, GlyphStore.easeSlope(GlyphStore.EASING_ACCELERATE_DECELERATE, 0), EPSILON);
+        assertEquals(2, GlyphStore.easeSlope(GlyphStore.EASING_DECELERATE, 0), EPSILON);
+    }
+
+    @Test
+    public void evaluatesEasedTimelines() {
+        final GlyphStore store = new GlyphStore();
+        store.add('1', 0, 0, 10, 1);
+        store.startAnimation(0, 0, 100, 50, 0, 1000, 20, 200, GlyphStore.EASING_LINEAR);
+        store.fade(0, 0, 1);
+
+        // Waiting for its delay.
+        assertTrue(store.advance(0, 1010));
+        assertEquals(100, store.y[0], EPSILON);
+        assertEquals(0, store.a[0], EPSILON);
+
+        assertTrue(store.advance(0, 1120));
+        assertEquals(25, store.x[0], EPSILON);
+        assertEquals(50, store.y[0], EPSILON);
+        assertEquals(0.5f, store.a[0], EPSILON);
+        assertEquals(-500, store.velocityY[0], EPSILON);
+
+        assertFalse(store.advance(0, 1220));
+        assertFalse(store.animating[0]);
+        assertEquals(50, store.x[0], 0);
+        assertEquals(0, store.y[0], 0);
+        assertEquals(1, store.a[0], 0);
+        assertEquals(0, store.velocityY[0], 0);
+    }
+
+    @Test
+    public void seeksBackAfterTheEnd() {
+        final GlyphStore store = new GlyphStore();
+        store.add('1', 0, 0, 10, 1);
+        assertFalse(store.seek(0, 0));
+
+        store.startAnimation(0, 0, 100, 0, 0, 0, 0, 100, GlyphStore.EASING_LINEAR);
+        assertFalse(store.seek(0, 500));
+        assertEquals(0, store.y[0], 0);
+        assertTrue(store.seek(0, 50));
+        assertEquals(50, store.y[0], EPSILON);
+    }
+
+    @Test
+    public void springsSettleAtTheirEnds() {
+        final float[] dampingRatios = { 0.05f, 0.2f, 0.5f, 1f, 2f, 10f };
+        for (float dampingRatio : dampingRatios) {
+            final GlyphStore store = new GlyphStore();
+            store.add('1', 0, 0, 10, 1);
+            store.startSpring(0, 0, 100, 0, 0, 0, 0, 0, 0,
+                    TransitionEngine.DEFAULT_SPRING_STIFFNESS, dampingRatio);
+
+            long time = 0;
+            float minY = Float.MAX_VALUE;
+            while (store.advance(0, time)) {
+                minY = Math.min(minY, store.y[0]);
+                time += 16;
+                assertTrue("a spring with a damping ratio of " + dampingRatio
+                        + " does not settle", time < 60000);
+            }
+
+            assertEquals(0, store.y[0], 0);
+            assertEquals(0, store.velocityY[0], 0);
+            if (dampingRatio < 1) {
+                assertTrue("an underdamped spring overshoots", minY < 0);
+            } else {
+                assertTrue("a damped spring does not overshoot", minY >= 0);
+            }
+        }
+    }
+
+    @Test
+    public void springsStartWithTheirVelocity() {
+        final float[] dampingRatios = { 0.5f, 1f, 2f };
+        for (float dampingRatio : dampingRatios) {
+            final GlyphStore store = new GlyphStore();
+            store.add('1', 0, 0, 10, 1);
+            store.startSpring(0, 0, 0, 100, 0, 800, 0, 0, 0, 400, dampingRatio);
+
+            assertTrue(store.advance(0, 0));
+            assertEquals(0, store.x[0], EPSILON);
+            assertEquals(800, store.velocityX[0], 0.01f);
+        }
+    }
+
+    @Test
+    public void springsWithoutTravelFadeOverAFewPeriods() {
+        final GlyphStore store = new GlyphStore();
+        store.add('1', 0, 0, 10, 1);
+        store.startSpring(0, 0, 0, 0, 0, 0, 0, 0, 0, 400, 0.5f);
+        store.fade(0, 0, 1);
+
+        // The angular frequency is 20 per second, the fade takes 4 / 20 seconds.
+        assertTrue(store.advance(0, 100));
+        assertEquals(0.5f, store.a[0], EPSILON);
+        assertFalse(store.advance(0, 200));
+        assertEquals(1, store.a[0], 0);
+    }
+
+    @Test
+    public void springReachBoundsThePath() {
+        final GlyphStore store = new GlyphStore();
+        store.add('1', 0, 0, 10, 1);
+        store.startSpring(0, 0, 0, 0, 0, 3000, 0, 0, 0, 1500, 0.3f);
+        final float reach = GlyphStore.springReach(0, 3000, 1500);
+        for (long time = 0; store.advance(0, time); time += 4) {
+            assertTrue(Math.abs(store.x[0]) <= reach + EPSILON);
+        }
+    }
+
+    @Test
+    public void rollPositionWrapsAroundTheDigits() {
+        final GlyphStore store = new GlyphStore();
+        store.add('5', 0, 0, 10, 1);
+        assertEquals(5, store.rollPosition(0, 10), EPSILON);
+        store.y[0] = 40;
+        assertEquals(1, store.rollPosition(0, 10), EPSILON);
+        store.y[0] = -60;
+        assertEquals(1, store.rollPosition(0, 10), EPSILON);
+        store.y[0] = 55;
+        assertEquals(9.5f, store.rollPosition(0, 10), EPSILON);
+        store.y[0] = 50;
+        assertEquals(0, store.rollPosition(0, 10), EPSILON);
+    }
+
+    @Test
+    public void growsKeepingEveryColumn() {
+        final GlyphStore store = new GlyphStore();
+        final int count = store.capacity() * 3;
+        for (int i = 0; i < count; i++) {
+            store.add((char) ('0' + i % 10), i * 10, 0, 10, 1);
+            store.startAnimation(i, i, i, i * 10, 0, 0, i, 100, GlyphStore.EASING_LINEAR);
+            store.rolling[i] = i % 2 == 0;
+        }
+
+        assertEquals(count, store.size);
+        assertTrue(store.growthCount > 0);
+        assertEquals(count * 10, store.totalWidth(), EPSILON);
+        for (int i = 0; i < count; i++) {
+            assertEquals('0' + i % 10, store.ch[i]);
+            assertEquals(i, store.fromY[i], 0);
+            assertEquals(i, store.delay[i]);
+            assertEquals(i % 2 == 0, store.rolling[i]);
+        }
+    }
+
+    @Test
+    public void scalesTimelines() {
+        final GlyphStore store = new GlyphStore();
+        store.add('1', 0, 0, 10, 1);
+        store.startAnimation(0, 0, 100, 50, 0, 0, 0, 100, GlyphStore.EASING_LINEAR);
+        store.advance(0, 50);
+        store.scale(2);
+
+        assertEquals(20, store.w[0], 0);
+        assertEquals(50, store.x[0], EPSILON);
+        store.advance(0, 75);
+        assertEquals(75, store.x[0], EPSILON);
+        assertEquals(50, store.y[0], EPSILON);
+    }
+
+}
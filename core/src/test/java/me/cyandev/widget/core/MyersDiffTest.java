@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2017 Cyandev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.cyandev.widget.core;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class MyersDiffTest {
+
+    @Test
+    public void keepsLongestCommonSubsequence() {
+        final Random random = new Random(42);
+        final MyersDiff diff = new MyersDiff();
+        for (int round = 0; round < 2000; round++) {
+            final char[] oldChars = randomText(random, random.nextInt(12), 3);
+            final char[] newChars = randomText(random, random.nextInt(12), 3);
+            final int[] newToOld = new int[newChars.length];
+            diff.diff(oldChars, oldChars.length, newChars, newChars.length, newToOld);
+
+            assertValidScript(oldChars, newChars, newToOld);
+            assertEquals(new String(oldChars) + " -> " + new String(newChars),
+                    lcsLength(oldChars, newChars), keptCount(newToOld));
+        }
+    }
+
+    @Test
+    public void keepsRightmostCharactersOnTies() {
+        assertArrayEquals(new int[] { 0, 2, 3 }, diff(new MyersDiff(), "1000", "100"));
+        assertArrayEquals(new int[] { 0, 1, -1, 3 }, diff(new MyersDiff(), "1099", "1009"));
+        assertArrayEquals(new int[] { -1, 0, 1, 2 }, diff(new MyersDiff(), "999", "1999"));
+    }
+
+    @Test
+    public void keepsShiftedCharacters() {
+        assertArrayEquals(new int[] { -1, 0, 1, 2, 3, 4 },
+                diff(new MyersDiff(), "1,234", "11,234"));
+        assertArrayEquals(new int[] { 0, -1, 1, 2, -1 }, diff(new MyersDiff(), "1234", "1x23y"));
+        assertArrayEquals(new int[] { 0, 1, 2, 3 }, diff(new MyersDiff(), "1234", "1234"));
+        assertArrayEquals(new int[] { -1, -1 }, diff(new MyersDiff(), "", "12"));
+        assertArrayEquals(new int[0], diff(new MyersDiff(), "12", ""));
+    }
+
+    @Test
+    public void fallsBackToRightAlignedBeyondMaxEdits() {
+        // The middle "123" -> "321" takes 4 edits.
+        assertArrayEquals(new int[] { 0, -1, 2, -1, 4 }, diff(new MyersDiff(3), "a123b", "a321b"));
+        assertEquals(3, keptCount(diff(new MyersDiff(4), "a123b", "a321b")));
+
+        // No edit allowed at all, only the common prefix and suffix are matched first.
+        assertArrayEquals(diff(new RightAlignedDiff(), "x12", "y02"),
+                diff(new MyersDiff(0), "x12", "y02"));
+        assertArrayEquals(new int[] { 0, -1, 2 }, diff(new MyersDiff(0), "a1c", "a2c"));
+    }
+
+    @Test
+    public void fallbackStillProducesValidScripts() {
+        final Random random = new Random(7);
+        final MyersDiff diff = new MyersDiff(2);
+        for (int round = 0; round < 500; round++) {
+            final char[] oldChars = randomText(random, random.nextInt(16), 4);
+            final char[] newChars = randomText(random, random.nextInt(16), 4);
+            final int[] newToOld = new int[newChars.length];
+            diff.diff(oldChars, oldChars.length, newChars, newChars.length, newToOld);
+            assertValidScript(oldChars, newChars, newToOld);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNegativeMaxEdits() {
+        new MyersDiff(-1);
+    }
+
+    @Test
+    public void rightAlignedKeepsEqualAlignedCharacters() {
+        assertArrayEquals(new int[] { -1, 0, 1, 2 }, diff(new RightAlignedDiff(), "123", "9123"));
+        assertArrayEquals(new int[] { 1, -1, 3 }, diff(new RightAlignedDiff(), "1234", "244"));
+        assertArrayEquals(new int[] { -1, -1 }, diff(new RightAlignedDiff(), "", "12"));
+    }
+
+    static int[] diff(DiffStrategy strategy, String oldText, String newText) {
+        final int[] newToOld = new int[newText.length()];
+        strategy.diff(oldText.toCharArray(), oldText.length(), newText.toCharArray(),
+                newText.length(), newToOld);
+        return newToOld;
+    }
+
+    private static char[] randomText(Random random, int length, int alphabet) {
+        final char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) ('0' + random.nextInt(alphabet));
+        }
+        return chars;
+    }
+
+    private static void assertValidScript(char[] oldChars, char[] newChars, int[] newToOld) {
+        int last = -1;
+        for (int j = 0; j < newChars.length; j++) {
+            final int i = newToOld[j];
+            if (i >= 0) {
+                assertTrue("kept indices must be strictly increasing", i > last);
+                assertEquals(oldChars[i], newChars[j]);
+                last = i;
+            }
+        }
+        assertTrue(last < oldChars.length);
+    }
+
+    private static int keptCount(int[] newToOld) {
+        int count = 0;
+        for (int i : newToOld) {
+            if (i >= 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static int lcsLength(char[] a, char[] b) {
+        final int[][] lengths = new int[a.length + 1][b.length + 1];
+        for (int i = 1; i <= a.length; i++) {
+            for (int j = 1; j <= b.length; j++) {
+                lengths[i][j] = a[i - 1] == b[j - 1]
+                        ? lengths[i - 1][j - 1] + 1
+                        : Math.max(lengths[i - 1][j], lengths[i][j - 1]);
+            }
+        }
+        return lengths[a.length][b.length];
+    }
+
+}
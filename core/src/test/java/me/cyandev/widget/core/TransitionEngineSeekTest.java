@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2017 Cyandev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.cyandev.widget.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Renders transitions frame by frame with {@link TransitionEngine#seek(long)} and checks that
+ * every frame draws exactly the glyphs the frame clock draws at the same time.
+ */
+public class TransitionEngineSeekTest {
+
+    private static final long START = 1000;
+    private static final int FRAME_INTERVAL = 16;
+    private static final int FRAME_COUNT = 120;
+    private static final float TRAVEL = 10;
+
+    private static final int EASED = 0;
+    private static final int FADE = 1;
+    private static final int SPRING = 2;
+    private static final int ROLL = 3;
+
+    @Test
+    public void seekingMatchesTheFrameClock() {
+        for (int mode = EASED; mode <= ROLL; mode++) {
+            final TransitionEngine live = createEngine(mode);
+            final TransitionEngine seeking = createEngine(mode);
+
+            for (int frame = 0; frame <= FRAME_COUNT; frame++) {
+                final long time = START + frame * FRAME_INTERVAL;
+                final boolean liveRunning = live.advance(time);
+                assertEquals("mode " + mode + ", frame " + frame, liveRunning,
+                        seeking.seek(time));
+                assertEquals("mode " + mode + ", frame " + frame, drawnGlyphs(live),
+                        drawnGlyphs(seeking));
+            }
+            assertFalse(live.isAnimating());
+        }
+    }
+
+    @Test
+    public void seekingBackGivesTheSameFrames() {
+        for (int mode = EASED; mode <= ROLL; mode++) {
+            final TransitionEngine engine = createEngine(mode);
+            final List<List<String>> frames = new ArrayList<>();
+            for (int frame = 0; frame <= FRAME_COUNT; frame++) {
+                engine.seek(START + frame * FRAME_INTERVAL);
+                frames.add(drawnGlyphs(engine));
+            }
+            for (int frame = FRAME_COUNT; frame >= 0; frame--) {
+                engine.seek(START + frame * FRAME_INTERVAL);
+                assertEquals("mode " + mode + ", frame " + frame, frames.get(frame),
+                        drawnGlyphs(engine));
+            }
+        }
+    }
+
+    @Test
+    public void leavingGlyphsAreHiddenOnceSeekedPastTheirEnds() {
+        final TransitionEngine engine = createEngine(FADE);
+        assertFalse(engine.seek(START + 5000));
+
+        final GlyphStore leaving = engine.getLeavingGlyphs();
+        for (int i = 0; i < leaving.size; i++) {
+            assertEquals(0, leaving.a[i], 0);
+        }
+        assertEquals("1234", TransitionEngineTest.textOf(engine.getGlyphs()));
+
+        // Resuming the clock drops them.
+        assertFalse(engine.advance(START + 5016));
+        assertEquals(0, leaving.size);
+    }
+
+    private static TransitionEngine createEngine(int mode) {
+        final TransitionEngine engine = new TransitionEngine();
+        engine.setDuration(300);
+        engine.setStagger(40);
+        engine.setFade(mode == FADE);
+        engine.setSpring(mode == SPRING);
+        engine.setRolling(mode == ROLL);
+
+        engine.layout("9870", TransitionEngineTest.ADVANCES);
+        engine.transit(0, TRAVEL, false);
+        engine.layout("1234", TransitionEngineTest.ADVANCES);
+        engine.transit(START, TRAVEL, true);
+        return engine;
+    }
+
+    /**
+     * Describes the glyphs a renderer draws, the transparent ones are not drawn.
+     */
+    private static List<String> drawnGlyphs(TransitionEngine engine) {
+        final List<String> drawn = new ArrayList<>();
+        describe(engine.getGlyphs(), drawn);
+        describe(engine.getLeavingGlyphs(), drawn);
+        return drawn;
+    }
+
+    private static void describe(GlyphStore glyphs, List<String> out) {
+        for (int i = 0; i < glyphs.size; i++) {
+            if (glyphs.a[i] > 0) {
+                out.add(glyphs.ch[i] + " x=" + glyphs.x[i] + " y=" + glyphs.y[i]
+                        + " a=" + glyphs.a[i] + " rolling=" + glyphs.rolling[i]);
+            }
+        }
+    }
+
+}
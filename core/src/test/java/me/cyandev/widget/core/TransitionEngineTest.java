@@ -0,0 +1,313 @@
+/*
+ * Copyright (C) 2017 Cyandev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.cyandev.widget.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TransitionEngineTest {
+
+    /** Every character is 10 pixels wide. */
+    static final GlyphAdvances ADVANCES = new GlyphAdvances() {
+        @Override
+        public float getAdvance(char ch) {
+            return 10;
+        }
+    };
+
+    private static final float TRAVEL = 10;
+
+    private TransitionEngine mEngine;
+
+    @Before
+    public void setUp() {
+        mEngine = new TransitionEngine();
+        mEngine.setDuration(100);
+        mEngine.setStagger(10);
+    }
+
+    @Test
+    public void displaysTextDirectlyWithoutAnimation() {
+        setText("123", 0, false);
+
+        final GlyphStore glyphs = mEngine.getGlyphs();
+        assertEquals("123", textOf(glyphs));
+        assertEquals(20, glyphs.x[2], 0);
+        assertFalse(mEngine.isAnimating());
+        assertFalse(mEngine.advance(0));
+    }
+
+    @Test
+    public void transitsChangedCharactersOnly() {
+        setText("100", 0, false);
+        setText("101", 1000, true);
+
+        assertEquals(2, mEngine.getLastKeptCount());
+        assertEquals(0, mEngine.getLastMovedCount());
+        assertEquals(1, mEngine.getLastInsertedCount());
+        assertEquals(1, mEngine.getLastRemovedCount());
+
+        final GlyphStore glyphs = mEngine.getGlyphs();
+        final GlyphStore leaving = mEngine.getLeavingGlyphs();
+        assertEquals("101", textOf(glyphs));
+        assertEquals("0", textOf(leaving));
+        assertFalse(glyphs.animating[0]);
+        assertTrue(glyphs.animating[2]);
+
+        assertTrue(mEngine.advance(1000));
+        assertEquals(TRAVEL, glyphs.y[2], 0);
+        assertEquals(0, leaving.y[0], 0);
+
+        assertTrue(mEngine.advance(1050));
+        assertEquals(TRAVEL / 2, glyphs.y[2], 1e-4f);
+        assertEquals(-TRAVEL / 2, leaving.y[0], 1e-4f);
+
+        assertFalse(mEngine.advance(1100));
+        assertEquals(0, glyphs.y[2], 0);
+        assertEquals(0, leaving.size);
+    }
+
+    @Test
+    public void staggersChangesFromTheRight() {
+        setText("11", 0, false);
+        setText("22", 0, true);
+
+        final GlyphStore glyphs = mEngine.getGlyphs();
+        assertEquals(10, glyphs.delay[0]);
+        assertEquals(0, glyphs.delay[1]);
+        assertEquals(0, mEngine.getNextChangeTime());
+        assertFalse(mEngine.advance(110));
+    }
+
+    @Test
+    public void slidesKeptCharacters() {
+        setText("999", 0, false);
+        setText("1999", 0, true);
+
+        final GlyphStore glyphs = mEngine.getGlyphs();
+        assertEquals(3, mEngine.getLastMovedCount());
+        assertEquals(1, mEngine.getLastInsertedCount());
+        assertEquals(0, glyphs.fromX[1], 0);
+        assertEquals(10, glyphs.toX[1], 0);
+    }
+
+    @Test
+    public void retargetsFromTheDisplayedState() {
+        mEngine.setRetarget(true);
+        setText("1", 0, false);
+        setText("2", 0, true);
+        mEngine.advance(50);
+        final float y = mEngine.getGlyphs().y[0];
+
+        setText("23", 50, true);
+        final GlyphStore glyphs = mEngine.getGlyphs();
+        assertEquals(1, mEngine.getLastMovedCount());
+        assertEquals(y, glyphs.fromY[0], 0);
+        assertEquals(GlyphStore.EASING_DECELERATE, glyphs.easing[0]);
+        assertEquals(0, glyphs.delay[0]);
+    }
+
+    @Test
+    public void fadesGlyphsInAndOut() {
+        mEngine.setFade(true);
+        setText("1", 0, false);
+        setText("2", 0, true);
+
+        final GlyphStore glyphs = mEngine.getGlyphs();
+        final GlyphStore leaving = mEngine.getLeavingGlyphs();
+        mEngine.advance(50);
+        assertEquals(0.5f, glyphs.a[0], 1e-4f);
+        assertEquals(0.5f, leaving.a[0], 1e-4f);
+        mEngine.advance(100);
+        assertEquals(1, glyphs.a[0], 0);
+        assertEquals(0, leaving.size);
+    }
+
+    @Test
+    public void springTransitionsSettle() {
+        mEngine.setSpring(true);
+        setText("123", 0, false);
+        setText("4567", 0, true);
+
+        long time = 0;
+        while (mEngine.advance(time)) {
+            time += 16;
+            assertTrue("the transition does not settle", time < 10000);
+        }
+        final GlyphStore glyphs = mEngine.getGlyphs();
+        for (int i = 0; i < glyphs.size; i++) {
+            assertEquals(i * 10, glyphs.x[i], 0);
+            assertEquals(0, glyphs.y[i], 0);
+        }
+        assertEquals(0, mEngine.getLeavingGlyphs().size);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUndampedSprings() {
+        mEngine.setSpringDampingRatio(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsSpringsWithoutStiffness() {
+        mEngine.setSpringStiffness(0);
+    }
+
+    @Test
+    public void rollsDigitsInTheDirectionOfTravel() {
+        mEngine.setRolling(true);
+        assertRoll('1', '5', TRAVEL, new float[] { 1, 2, 3, 4, 5 });
+        assertRoll('1', '5', -TRAVEL, new float[] { 1, 0, 9, 8, 7, 6, 5 });
+        assertRoll('9', '0', TRAVEL, new float[] { 9, 0 });
+        assertRoll('0', '9', TRAVEL, new float[] { 0, 1, 2, 3, 4, 5, 6, 7, 8, 9 });
+    }
+
+    @Test
+    public void rollsOnFromARollingDigit() {
+        mEngine.setRolling(true);
+        mEngine.setRetarget(true);
+        setText("0", 0, false);
+        setText("4", 0, true);
+        mEngine.advance(50);
+        final float position = mEngine.getGlyphs().rollPosition(0, TRAVEL);
+        assertEquals(2, position, 1e-3f);
+
+        setText("6", 50, true);
+        final GlyphStore glyphs = mEngine.getGlyphs();
+        assertTrue(glyphs.rolling[0]);
+        assertEquals(position, glyphs.rollPosition(0, TRAVEL), 1e-3f);
+        assertEquals(GlyphStore.EASING_DECELERATE, glyphs.easing[0]);
+        assertFalse(mEngine.advance(150));
+        assertEquals(6, glyphs.rollPosition(0, TRAVEL), 0);
+    }
+
+    @Test
+    public void doesNotRollOtherCharacters() {
+        mEngine.setRolling(true);
+        setText("1", 0, false);
+        setText("a", 0, true);
+        assertFalse(mEngine.getGlyphs().rolling[0]);
+        assertEquals(1, mEngine.getLeavingGlyphs().size);
+    }
+
+    @Test
+    public void cullsGlyphsOutOfTheViewport() {
+        setText("1234", 0, false);
+        mEngine.setViewport(0, 15);
+        setText("5678", 0, true);
+
+        final GlyphStore glyphs = mEngine.getGlyphs();
+        assertTrue(glyphs.animating[0]);
+        assertTrue(glyphs.animating[1]);
+        assertFalse(glyphs.animating[2]);
+        assertFalse(glyphs.animating[3]);
+        // Only the visible glyphs take a stagger step.
+        assertEquals(0, glyphs.delay[1]);
+        assertEquals(2, mEngine.getLeavingGlyphs().size);
+
+        mEngine.setViewport(Float.MAX_VALUE, -Float.MAX_VALUE);
+        setText("1234", 0, true);
+        assertFalse(mEngine.isAnimating());
+        assertEquals(4, mEngine.getLastRemovedCount());
+    }
+
+    @Test
+    public void countsGlyphsMovedOutOfTheViewport() {
+        setText("999", 0, false);
+        mEngine.setViewport(Float.MAX_VALUE, -Float.MAX_VALUE);
+        setText("1999", 0, true);
+
+        assertEquals(0, mEngine.getLastKeptCount());
+        assertEquals(3, mEngine.getLastMovedCount());
+    }
+
+    @Test
+    public void carriesTransitionsOnAcrossScalesAndMetrics() {
+        setText("12", 0, false);
+        setText("13", 0, true);
+        mEngine.advance(50);
+
+        mEngine.scale(2);
+        final GlyphStore glyphs = mEngine.getGlyphs();
+        assertTrue(mEngine.isAnimating());
+        assertEquals(TRAVEL, glyphs.y[1], 1e-4f);
+        assertEquals(20, glyphs.x[1], 0);
+
+        mEngine.remeasure(new GlyphAdvances() {
+            @Override
+            public float getAdvance(char ch) {
+                return 30;
+            }
+        });
+        assertEquals(30, glyphs.x[1], 0);
+        assertFalse(mEngine.advance(100));
+        assertEquals(0, glyphs.y[1], 0);
+    }
+
+    @Test
+    public void reusesItsStores() {
+        setText("0", 0, false);
+        for (int i = 1; i < 100; i++) {
+            setText(String.valueOf(i * 1001), i * 1000, true);
+            mEngine.advance(i * 1000 + 50);
+        }
+        final int growthCount = mEngine.getStoreGrowthCount();
+        for (int i = 1; i < 100; i++) {
+            setText(String.valueOf(i * 1001), (i + 100) * 1000, true);
+        }
+        assertEquals(growthCount, mEngine.getStoreGrowthCount());
+    }
+
+    private void assertRoll(char from, char to, float travel, float[] expectedDigits) {
+        mEngine.layout(String.valueOf(from), ADVANCES);
+        mEngine.transit(0, travel, false);
+        mEngine.layout(String.valueOf(to), ADVANCES);
+        mEngine.transit(0, travel, true);
+
+        final GlyphStore glyphs = mEngine.getGlyphs();
+        assertTrue(glyphs.rolling[0]);
+        assertEquals(0, mEngine.getLeavingGlyphs().size);
+        assertEquals(from - '0', glyphs.rollPosition(0, Math.abs(travel)), 1e-4f);
+
+        // Every digit in between shows up in order, one per step of the travel.
+        int next = 1;
+        for (long time = 0; mEngine.advance(time); time++) {
+            final float position = glyphs.rollPosition(0, Math.abs(travel));
+            if (next < expectedDigits.length) {
+                // The distance around the digit wheel.
+                final float distance = Math.abs(position - expectedDigits[next]);
+                if (Math.min(distance, 10 - distance) < 0.1f) {
+                    next++;
+                }
+            }
+        }
+        assertEquals(expectedDigits.length, next);
+        assertEquals(to - '0', glyphs.rollPosition(0, Math.abs(travel)), 0);
+        assertEquals(0, glyphs.y[0], 0);
+    }
+
+    private void setText(String text, long now, boolean animate) {
+        mEngine.layout(text, ADVANCES);
+        mEngine.transit(now, TRAVEL, animate);
+    }
+
+    static String textOf(GlyphStore glyphs) {
+        return new String(glyphs.ch, 0, glyphs.size);
+    }
+
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) 2017 Cyandev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.cyandev.widget;
+
+import android.graphics.Paint;
+
+import java.util.Arrays;
+
+import me.cyandev.widget.core.GlyphAdvances;
+
+/**
+ * Caches the advance of single characters and the font metrics for one paint configuration, so
+ * that laying out a text made of already seen characters does no measurement at all. Whether
+ * pairs of characters are kerned is cached as well, for drawing text runs.
+ *
+ * The cache is keyed by the paint state affecting the metrics, see
+ * {@link PrecomputedBouncyText.Params}, it drops everything once that state changes. A cache
+ * measuring with a private copy of a paint never changes, it can be shared by views having the
+ * same configuration, see {@link BouncyTextScope}.
+ */
+final class AdvanceCache implements GlyphAdvances {
+
+    private static final int PAGE_SHIFT = 8;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    /** Pairs of chars below this one have their shaping cached. */
+    private static final int PAIR_CHAR_LIMIT = 128;
+    private static final byte PAIR_UNKNOWN = 0;
+    private static final byte PAIR_APART = 1;
+    private static final byte PAIR_SHAPED = 2;
+    /** How far (in pixels) the shaped width of a pair may be off the sum of its advances. */
+    private static final float PAIR_WIDTH_TOLERANCE = 0.05f;
+
+    /** Advances grouped in pages of 256 chars, allocated when a char of the page is measured. */
+    private final float[][] mPages = new float[(Character.MAX_VALUE + 1) >> PAGE_SHIFT][];
+    /** Tells whether an entry of a page has been measured. */
+    private final boolean[][] mMeasured = new boolean[mPages.length][];
+
+    private final char[] mSingleCharArray = new char[1];
+    private final char[] mPairArray = new char[2];
+    /** Whether each pair of ASCII chars is kerned or ligated, allocated on the first pair. */
+    private byte[] mPairs;
+
+    private final Paint.FontMetrics mFontMetrics = new Paint.FontMetrics();
+    private boolean mFontMetricsMeasured = false;
+
+    private final Paint mPaint;
+
+    /** Lookups served from the cache and lookups that had to measure. */
+    long mHitCount = 0;
+    long mMissCount = 0;
+
+    /** The paint state the cached advances have been measured with, null if none. */
+    private PrecomputedBouncyText.Params mParams;
+
+    /**
+     * @param paint the paint to measure with, its metrics state is the key of this cache
+     */
+    AdvanceCache(Paint paint) {
+        mPaint = paint;
+    }
+
+    /**
+     * Drops all cached advances if the paint no longer matches the key of this cache.
+     *
+     * @return true if the cache has been invalidated
+     */
+    boolean validate() {
+        final Paint paint = mPaint;
+        if (matches(paint)) {
+            return false;
+        }
+
+        invalidate();
+        mParams = new PrecomputedBouncyText.Params(paint);
+        return true;
+    }
+
+    /**
+     * Returns whether the advances cached are the ones of given paint.
+     */
+    boolean matches(Paint paint) {
+        return mParams != null && mParams.matches(paint);
+    }
+
+    /**
+     * Returns the paint state the cached advances are measured with, null until validated.
+     */
+    PrecomputedBouncyText.Params getParams() {
+        return mParams;
+    }
+
+    /**
+     * Drops all cached advances.
+     */
+    void invalidate() {
+        for (int i = 0; i < mMeasured.length; i++) {
+            final boolean[] measured = mMeasured[i];
+            if (measured != null) {
+                Arrays.fill(measured, false);
+            }
+        }
+        if (mPairs != null) {
+            Arrays.fill(mPairs, PAIR_UNKNOWN);
+        }
+        mFontMetricsMeasured = false;
+        mParams = null;
+    }
+
+    /**
+     * Copies the font metrics into given one, measuring them on the first request. The cache is
+     * supposed to have been validated before.
+     */
+    void getFontMetrics(Paint.FontMetrics out) {
+        final Paint.FontMetrics fm = mFontMetrics;
+        if (!mFontMetricsMeasured) {
+            mPaint.getFontMetrics(fm);
+            mFontMetricsMeasured = true;
+        }
+
+        out.top = fm.top;
+        out.ascent = fm.ascent;
+        out.descent = fm.descent;
+        out.bottom = fm.bottom;
+        out.leading = fm.leading;
+    }
+
+    /**
+     * Returns the advance of given char, measuring it on the first request. The cache is supposed
+     * to have been validated before.
+     */
+    @Override
+    public float getAdvance(char ch) {
+        final int page = ch >> PAGE_SHIFT;
+        final int offset = ch & PAGE_MASK;
+
+        float[] advances = mPages[page];
+        boolean[] measured = mMeasured[page];
+        if (advances == null) {
+            advances = mPages[page] = new float[PAGE_SIZE];
+            measured = mMeasured[page] = new boolean[PAGE_SIZE];
+        }
+
+        if (!measured[offset]) {
+            mSingleCharArray[0] = ch;
+            advances[offset] = mPaint.measureText(mSingleCharArray, 0, 1);
+            measured[offset] = true;
+            mMissCount++;
+        } else {
+            mHitCount++;
+        }
+
+        return advances[offset];
+    }
+
+    /**
+     * Returns whether given pair of chars drawn as one text run keeps the second char at the
+     * advance of the first, that is the pair is neither kerned nor ligated. Pairs of ASCII chars
+     * are measured on the first request only. The cache is supposed to have been validated
+     * before.
+     */
+    boolean isPairApart(char first, char second) {
+        if (first >= PAIR_CHAR_LIMIT || second >= PAIR_CHAR_LIMIT) {
+            return measurePairApart(first, second);
+        }
+
+        if (mPairs == null) {
+            mPairs = new byte[PAIR_CHAR_LIMIT * PAIR_CHAR_LIMIT];
+        }
+        final int index = first * PAIR_CHAR_LIMIT + second;
+        if (mPairs[index] == PAIR_UNKNOWN) {
+            mPairs[index] = measurePairApart(first, second) ? PAIR_APART : PAIR_SHAPED;
+        }
+        return mPairs[index] == PAIR_APART;
+    }
+
+    private boolean measurePairApart(char first, char second) {
+        mPairArray[0] = first;
+        mPairArray[1] = second;
+        final float width = mPaint.measureText(mPairArray, 0, 2);
+        return Math.abs(width - getAdvance(first) - getAdvance(second)) <= PAIR_WIDTH_TOLERANCE;
+    }
+
+}
@@ -17,33 +17,40 @@
 
 package me.cyandev.widget;
 
-import android.animation.Animator;
-import android.animation.AnimatorListenerAdapter;
-import android.animation.ObjectAnimator;
 import android.content.Context;
 import android.content.res.Resources;
 import android.content.res.TypedArray;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
+import android.graphics.Picture;
 import android.graphics.Rect;
 import android.graphics.RectF;
+import android.graphics.Typeface;
+import android.os.Build;
 import android.os.Handler;
+import android.os.Looper;
 import android.support.annotation.IntDef;
 import android.support.annotation.Nullable;
 import android.support.annotation.StringRes;
+import android.support.v4.view.ViewCompat;
 import android.text.TextPaint;
+import android.text.TextUtils;
 import android.util.AttributeSet;
-import android.util.Property;
 import android.util.TypedValue;
+import android.view.Display;
 import android.view.View;
+import android.view.WindowManager;
+import android.view.animation.AnimationUtils;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
-import java.util.ArrayList;
-import java.util.List;
 
 import me.cyandev.R;
+import me.cyandev.widget.core.DiffStrategy;
+import me.cyandev.widget.core.GlyphStore;
+import me.cyandev.widget.core.MyersDiff;
+import me.cyandev.widget.core.TransitionEngine;
 
 /**
  * A user interface element that displays text to user and performs a character-unit animated
@@ -64,48 +71,122 @@ public class BouncyText extends View {
     @Retention(RetentionPolicy.SOURCE)
     @interface AnimationDirection {}
 
-    private TextPaint mTextPaint;
-    private Paint.FontMetrics mFontMetrics;
+    /**
+     * Characters fly in and out, the default style.
+     */
+    public static final int STYLE_FLIP = 0;
+    /**
+     * Characters fade in and out in place.
+     */
+    public static final int STYLE_FADE = 1;
+    /**
+     * Characters fade in and out in place, growing and shrinking.
+     */
+    public static final int STYLE_FADE_SCALE = 2;
+    /**
+     * Characters fly in and out, and a digit replaced by another rolls like an odometer through
+     * the digits in between.
+     */
+    public static final int STYLE_ROLL = 3;
 
-    private CharSequence mText = "";
+    @IntDef({ STYLE_FLIP, STYLE_FADE, STYLE_FADE_SCALE, STYLE_ROLL })
+    @Retention(RetentionPolicy.SOURCE)
+    @interface TransitionStyle {}
 
-    private List<CharacterInfo> mPrimaryInfos = new ArrayList<>();
-    private List<CharacterInfo> mTransientInfos = new ArrayList<>();
-    private RectF mBounds;
+    /** Text sizes not changed for this long (in milliseconds) are measured again. */
+    private static final long TEXT_SCALE_SETTLE_DELAY = 150;
+    /** Animation frames coming later than this many frame intervals are counted as late. */
+    private static final float LATE_FRAME_INTERVALS = 1.5f;
+    /** The refresh rate (in frames per second) assumed until the display is known. */
+    private static final float DEFAULT_REFRESH_RATE = 60;
 
-    private int mAnimationStagger = 45;
-    private int mAnimationDuration = 450;
-    private int mAnimationDirection = DIRECTION_UPWARD;
-    private int mRunningAnimatorCount = 0;
-    private boolean mEndingAnimators = false;
-    private boolean mAnimationsSuppressed = false;
-    private List<Animator> mActiveAnimators = new ArrayList<>();
+    /** Posts published values to the main thread, shared by all views. */
+    private static final Handler sMainHandler = new Handler(Looper.getMainLooper());
 
-    /** Prepared for measurements to avoid frequent allocation. */
-    private Rect mTmpRect = new Rect();
-    /** A char array with capacity of one char, avoiding frequent allocation.
-     * This is frequently used in Canvas drawing operation. */
-    private char[] mSingleCharArray = new char[1];
+    private TextPaint mTextPaint;
+    private Paint.FontMetrics mFontMetrics;
+    /**
+     * The displayed text size over the one of {@link #mTextPaint}, applied when drawing. Glyphs
+     * are measured at the new size only once it settles, sizes animated cost no measurement.
+     */
+    private float mTextScale = 1;
+    private final Runnable mApplyTextScale = new Runnable() {
+        @Override
+        public void run() {
+            applyTextScale();
+        }
+    };
 
-    private Handler mH = new Handler();
-    private SimplePool<CharacterInfo> mInfoPool = new SimplePool<>(50);
+    private CharSequence mText = "";
+
+    private char mGroupingSeparator = 0;
+    private char mDecimalSeparator = '.';
+    private boolean mShowPositiveSign = false;
 
-    private Runnable mAnimatorsCleanupRunnable = new Runnable() {
+    /** The latest value published from any thread, taken on the next animation frame. */
+    private final ValueMailbox mMailbox = new ValueMailbox();
+    private final Runnable mScheduleMailbox = new Runnable() {
         @Override
         public void run() {
-            for (Animator animator : mActiveAnimators) {
-                final ObjectAnimator oAnimator = (ObjectAnimator) animator;
-                final CharacterInfo info = (CharacterInfo) oAnimator.getTarget();
-                if (mTransientInfos.remove(info)) {
-                    mInfoPool.release(info);
-                }
-            }
-
-            mActiveAnimators.clear();
-            mEndingAnimators = false;
+            ViewCompat.postOnAnimation(BouncyText.this, mTakeMailbox);
+        }
+    };
+    private final Runnable mTakeMailbox = new Runnable() {
+        @Override
+        public void run() {
+            takeMailbox();
         }
     };
 
+    /** Lays out, diffs and animates the glyphs, this view only measures and draws them. */
+    private TransitionEngine mEngine = new TransitionEngine();
+    private RectF mBounds = new RectF();
+    private boolean mBoundsValid = false;
+    /** The specs of the last measure, to skip layouts that would measure the same size. */
+    private boolean mMeasured = false;
+    private int mLastWidthMeasureSpec;
+    private int mLastHeightMeasureSpec;
+
+    private boolean mTabularDigits = false;
+    private boolean mAnimationsSuppressed = false;
+
+    private Rect mClipBounds = new Rect();
+    private Rect mDirtyBounds = new Rect();
+    private Rect mVisibleBounds = new Rect();
+
+    /** Draws the glyphs with {@link #mTextPaint}. */
+    private GlyphRenderer mRenderer;
+    /** Measures the text with {@link #mTextPaint} and keeps the state shared with drawables. */
+    private BouncyTextHelper mHelper;
+
+    /** The glyphs at rest, recorded once per transition and replayed on every frame. */
+    private Picture mStaticPicture;
+    private boolean mStaticPictureValid = false;
+    /** Whether each displayed glyph was moving when the picture was recorded, left out of it. */
+    private boolean[] mLiveGlyphs = new boolean[0];
+    private boolean mHasLiveGlyphs = false;
+
+    /** The group driving the frames of this view, or null when it drives them itself. */
+    BouncyTextGroup mGroup;
+    /** Delay of the next transitions, set by the group to stagger its views. */
+    int mTransitionStartDelay = 0;
+    /** Count of transitions performed, tells the group which views changed. */
+    int mTransitionCount = 0;
+    /** Time of the last text change, the origin of {@link #seekTransition(long)}. */
+    private long mTransitionTime;
+    /** Whether the clock is frozen by {@link #seekTransition(long)}. */
+    private boolean mClockFrozen = false;
+
+    /** Whether the whole view has to be redrawn on the next group frame. */
+    private boolean mGroupDirtyAll = false;
+
+    private boolean mMetricsEnabled = false;
+    private BouncyTextMetrics mMetrics = new BouncyTextMetrics();
+    /** Time of the last frame that requested a next one on animation, or -1. */
+    private long mLastAnimationFrameTime = -1;
+    /** Animation frames coming later than this (in milliseconds) are counted as late. */
+    private long mLateFrameThreshold = getLateFrameThreshold(DEFAULT_REFRESH_RATE);
+
     public BouncyText(Context context) {
         this(context, null);
     }
@@ -129,16 +210,18 @@ public class BouncyText extends View {
 
         mTextPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
         mTextPaint.density = res.getDisplayMetrics().density;
+        mRenderer = new GlyphRenderer(mTextPaint);
+        mHelper = new BouncyTextHelper(mTextPaint, mEngine, mRenderer);
 
         setTextSize(a.getDimensionPixelSize(R.styleable.BouncyText_textSize, 15));
         setTextColor(a.getColor(R.styleable.BouncyText_textColor, Color.BLACK));
         setText(a.getString(R.styleable.BouncyText_text));
-        mAnimationDuration =
-                a.getInteger(R.styleable.BouncyText_animationDuration, mAnimationDuration);
-        mAnimationStagger =
-                a.getInteger(R.styleable.BouncyText_animationStagger, mAnimationStagger);
-        mAnimationDirection =
-                a.getInt(R.styleable.BouncyText_animationDirection, mAnimationDirection);
+        mEngine.setDuration(
+                a.getInteger(R.styleable.BouncyText_animationDuration, mEngine.getDuration()));
+        mEngine.setStagger(
+                a.getInteger(R.styleable.BouncyText_animationStagger, mEngine.getStagger()));
+        mHelper.setAnimationDirection(
+                a.getInt(R.styleable.BouncyText_animationDirection, DIRECTION_UPWARD));
 
         a.recycle();
     }
@@ -153,7 +236,9 @@ public class BouncyText extends View {
     }
 
     /**
-     * Sets the text size to given size, using given unit.
+     * Sets the text size to given size, using given unit. Running transitions carry on at the
+     * new size. The text is drawn scaled until the size stops changing and is only measured
+     * again then, so the size can be animated cheaply.
      *
      * @param unit the unit defined in {@link TypedValue}
      * @param size the size
@@ -163,19 +248,92 @@ public class BouncyText extends View {
     }
 
     private void setTextSizeInternal(int unit, float size) {
-        mTextPaint.setTextSize(
-                TypedValue.applyDimension(unit, size, getResources().getDisplayMetrics()));
+        final float textSize =
+                TypedValue.applyDimension(unit, size, getResources().getDisplayMetrics());
+        final float layoutTextSize = mTextPaint.getTextSize();
+        if (textSize == layoutTextSize * mTextScale) {
+            return;
+        }
 
-        // So far, we have to end current animations to swap the text size.
-        endAnimators();
+        if (layoutTextSize == 0) {
+            mTextPaint.setTextSize(textSize);
+            remeasure();
+            return;
+        }
 
-        for (CharacterInfo info : mPrimaryInfos) {
-            mInfoPool.release(info);
+        mTextScale = textSize / layoutTextSize;
+        if (mText.length() == 0) {
+            applyTextScale();
+            return;
         }
-        mPrimaryInfos.clear();
 
-        mPrimaryInfos = generateInfos(mText.toString());
-        requestLayout();
+        // Draw scaled for now, measure once the size settles.
+        removeCallbacks(mApplyTextScale);
+        postDelayed(mApplyTextScale, TEXT_SCALE_SETTLE_DELAY);
+        mStaticPictureValid = false;
+        mGroupDirtyAll = true;
+        mBoundsValid = false;
+        requestLayoutIfResized();
+        invalidate();
+    }
+
+    /**
+     * Returns the text size in pixels.
+     */
+    public float getTextSize() {
+        return mTextPaint.getTextSize() * mTextScale;
+    }
+
+    /**
+     * Sets the typeface to draw the text with. Running transitions carry on to the positions of
+     * the characters with the new typeface.
+     *
+     * @param typeface the typeface, or null for the default one
+     */
+    public void setTypeface(@Nullable Typeface typeface) {
+        if (mTextPaint.getTypeface() == typeface) {
+            return;
+        }
+
+        applyTextScale();
+        mTextPaint.setTypeface(typeface);
+        remeasure();
+    }
+
+    /**
+     * Returns the typeface the text is drawn with.
+     */
+    public Typeface getTypeface() {
+        return mTextPaint.getTypeface();
+    }
+
+    /**
+     * Measures the text at the displayed size if it is drawn scaled.
+     */
+    private void applyTextScale() {
+        removeCallbacks(mApplyTextScale);
+        if (mTextScale == 1) {
+            return;
+        }
+
+        mTextPaint.setTextSize(mTextPaint.getTextSize() * mTextScale);
+        mEngine.scale(mTextScale);
+        mTextScale = 1;
+        remeasure();
+    }
+
+    /**
+     * Measures the displayed glyphs again once the paint metrics changed, keeping their
+     * transitions.
+     */
+    private void remeasure() {
+        releaseGlyphBitmaps();
+        ensureFontMetrics();
+        mHelper.remeasure();
+        mStaticPictureValid = false;
+        mGroupDirtyAll = true;
+        mBoundsValid = false;
+        requestLayoutIfResized();
         invalidate();
     }
 
@@ -186,6 +344,7 @@ public class BouncyText extends View {
      */
     public void setTextColor(int color) {
         mTextPaint.setColor(color);
+        releaseGlyphBitmaps();
         invalidate();
     }
 
@@ -202,38 +361,232 @@ public class BouncyText extends View {
 
     /**
      * Sets the text to be displayed using a string, this will cause a flip fashion transition.
+     * A {@link PrecomputedBouncyText} matching the paint of this view is displayed without any
+     * measurement.
      *
      * @param text the string
      */
     public void setText(CharSequence text) {
         text = text == null ? "" : text;
 
-        if (mText != null && mText.equals(text)) {
+        if (TextUtils.equals(mText, text)) {
+            return;
+        }
+
+        applyText(text);
+    }
+
+    /**
+     * Sets a text measured beforehand to be displayed, see {@link PrecomputedBouncyText}. Only
+     * the diff and the drawing are then left to the main thread.
+     *
+     * @param text the precomputed text, created with {@link #getTextMetricsParams()}
+     * @throws IllegalArgumentException if the text was measured with other parameters
+     */
+    public void setPrecomputedText(PrecomputedBouncyText text) {
+        applyTextScale();
+        if (!text.getParams().matches(mTextPaint)) {
+            throw new IllegalArgumentException(
+                    "The precomputed text does not match the paint of this view.");
+        }
+
+        setText(text);
+    }
+
+    /**
+     * Returns the parameters texts displayed by this view have to be measured with, see
+     * {@link PrecomputedBouncyText#create(CharSequence, PrecomputedBouncyText.Params)}.
+     */
+    public PrecomputedBouncyText.Params getTextMetricsParams() {
+        // Texts are laid out at the displayed size.
+        applyTextScale();
+        return mHelper.ensureAdvanceCache().getParams();
+    }
+
+    /**
+     * Sets an integer to be displayed, formatted with current grouping separator and sign
+     * settings. Unlike {@link #setText(CharSequence)}, this does not allocate any string.
+     *
+     * <p>The text returned by {@link #getText()} is then backed by a reused buffer, it changes
+     * on the next value set.</p>
+     *
+     * @param value the value
+     */
+    public void setValue(long value) {
+        mHelper.getNextNumeral().setLong(value, mGroupingSeparator, mShowPositiveSign);
+        applyNextNumeral();
+    }
+
+    /**
+     * Sets a number to be displayed with a fixed count of fraction digits (rounded half up),
+     * formatted with current separator and sign settings. Unlike {@link #setText(CharSequence)},
+     * this does not allocate any string.
+     *
+     * <p>The text returned by {@link #getText()} is then backed by a reused buffer, it changes
+     * on the next value set.</p>
+     *
+     * @param value the value, its scaled absolute value must fit in a long
+     * @param precision the count of fraction digits, from 0 to 18
+     */
+    public void setValue(double value, int precision) {
+        mHelper.getNextNumeral().setDouble(value, precision, mGroupingSeparator, mDecimalSeparator,
+                mShowPositiveSign);
+        applyNextNumeral();
+    }
+
+    /**
+     * Publishes an integer to be displayed from any thread, see
+     * {@link #publishValue(double, int)}.
+     *
+     * @param value the value, its magnitude up to 2<sup>58</sup> - 1
+     * @throws IllegalArgumentException if the value is out of range
+     */
+    public void publishValue(long value) {
+        if (mMailbox.publish(value, 0)) {
+            sMainHandler.post(mScheduleMailbox);
+        }
+    }
+
+    /**
+     * Publishes a number to be displayed with a fixed count of fraction digits from any thread,
+     * as {@link #setValue(double, int)} does on the main thread. The number replaces the one
+     * pending if any, and the latest one is displayed on the next animation frame, so numbers
+     * published faster than the display refreshes are skipped. This does not lock nor allocate.
+     *
+     * <p>A value set on the main thread meanwhile is overwritten by the pending one.</p>
+     *
+     * @param value the value, its scaled magnitude up to 2<sup>58</sup> - 1
+     * @param precision the count of fraction digits, from 0 to 18
+     * @throws IllegalArgumentException if the value is out of range
+     */
+    public void publishValue(double value, int precision) {
+        if (mMailbox.publish(NumeralBuffer.scale(value, precision), precision)) {
+            sMainHandler.post(mScheduleMailbox);
+        }
+    }
+
+    private void takeMailbox() {
+        final long packed = mMailbox.take();
+        if (packed == ValueMailbox.EMPTY) {
             return;
         }
 
+        mHelper.getNextNumeral().setScaled(ValueMailbox.scaledOf(packed),
+                ValueMailbox.precisionOf(packed), mGroupingSeparator, mDecimalSeparator,
+                mShowPositiveSign);
+        applyNextNumeral();
+    }
+
+    private void applyNextNumeral() {
+        final NumeralBuffer numeral = mHelper.swapNumerals(mText);
+        if (numeral != null) {
+            applyText(numeral);
+        }
+    }
+
+    private void applyText(CharSequence text) {
+        // The new text is laid out at the displayed size.
+        applyTextScale();
         mText = text;
 
-        endAnimators();
-        String textStr = text.toString();
-        List<CharacterInfo> newInfos = generateInfos(textStr);
-        if (mAnimationsSuppressed || newInfos.size() == 0) {
-            for (CharacterInfo info : mPrimaryInfos) {
-                mInfoPool.release(info);
+        ensureFontMetrics();
+        layoutAndTransit(text, mHelper.getTravel(mFontMetrics), !mAnimationsSuppressed);
+        // Widths may change even if the length does not.
+        mBoundsValid = false;
+
+        requestLayoutIfResized();
+        invalidate();
+    }
+
+    /**
+     * Requests a layout only if measuring again with the last measure specs would give another
+     * size, so that texts keeping the size, such as digits in
+     * {@link #setReservedSlots(int) reserved slots} or any text of a view with an exact size, are
+     * only redrawn.
+     */
+    private void requestLayoutIfResized() {
+        if (!mMeasured) {
+            requestLayout();
+            return;
+        }
+
+        ensureBoundsRect();
+        if (resolveSize((int) mBounds.width(), mLastWidthMeasureSpec) != getMeasuredWidth()
+                || resolveSize((int) mBounds.height(), mLastHeightMeasureSpec)
+                != getMeasuredHeight()) {
+            requestLayout();
+        }
+    }
+
+    /**
+     * Lays out given text with validated advances and transits to it, recording its cost if
+     * metrics are enabled.
+     */
+    private void layoutAndTransit(CharSequence text, float travel, boolean animate) {
+        final TransitionEngine engine = mEngine;
+        final AdvanceCache cache = mHelper.ensureAdvanceCache();
+        mStaticPictureValid = false;
+        mTransitionCount++;
+        if (animate) {
+            updateViewport();
+            if (mGroup != null) {
+                mGroupDirtyAll = true;
+                mGroup.scheduleFrame();
             }
-            mPrimaryInfos.clear();
-            mPrimaryInfos = newInfos;
-            mBounds = null;
-        } else if (mPrimaryInfos.size() == 0) {
-            // Directly swap the list.
-            mPrimaryInfos = newInfos;
-            mBounds = null;
-        } else {
-            performTransitions(newInfos);
+        }
+        final long now = AnimationUtils.currentAnimationTimeMillis();
+        mTransitionTime = now;
+        if (!mMetricsEnabled) {
+            mHelper.layoutAndTransit(text, now, travel, animate, mTransitionStartDelay);
+            return;
         }
 
-        requestLayout();
-        invalidate();
+        final long hitCount = cache.mHitCount;
+        final long missCount = cache.mMissCount;
+        final int growthCount = engine.getStoreGrowthCount();
+        mHelper.layoutAndTransit(text, now, travel, animate, mTransitionStartDelay);
+
+        final BouncyTextMetrics metrics = mMetrics;
+        metrics.transitionCount++;
+        metrics.keptGlyphCount += engine.getLastKeptCount();
+        metrics.movedGlyphCount += engine.getLastMovedCount();
+        metrics.insertedGlyphCount += engine.getLastInsertedCount();
+        metrics.removedGlyphCount += engine.getLastRemovedCount();
+        metrics.storeGrowthCount += engine.getStoreGrowthCount() - growthCount;
+        metrics.advanceCacheHitCount += cache.mHitCount - hitCount;
+        metrics.advanceCacheMissCount += cache.mMissCount - missCount;
+    }
+
+    /**
+     * Limits the animated glyphs to the visible part of this view when it is clipped by its
+     * parent or scrolled. The right edge is left open while it lies on the bounds of this view, as
+     * the view may grow with the new text. Nothing is animated while an attached view is entirely
+     * out of sight.
+     */
+    private void updateViewport() {
+        if (!ViewCompat.isAttachedToWindow(this) || getWidth() == 0 || getHeight() == 0) {
+            // Not laid out yet, there is nothing to tell.
+            mEngine.clearViewport();
+            return;
+        }
+
+        final Rect visible = mVisibleBounds;
+        final int scrollX = getScrollX();
+        if (!getLocalVisibleRect(visible)) {
+            mEngine.setViewport(Float.MAX_VALUE, -Float.MAX_VALUE);
+            return;
+        }
+        if (visible.left <= 0 && visible.right >= getWidth() && scrollX <= 0) {
+            mEngine.clearViewport();
+            return;
+        }
+
+        // The visible bounds do not include the scrolling of this view, glyphs do.
+        final float slop = getGlyphSlop();
+        final float scale = mTextScale;
+        final float right = visible.right < getWidth()
+                ? (visible.right + scrollX) / scale + slop : Float.MAX_VALUE;
+        mEngine.setViewport((visible.left + scrollX) / scale - slop, right);
     }
 
     /**
@@ -248,6 +601,112 @@ public class BouncyText extends View {
         return mText;
     }
 
+    /**
+     * Sets the separator inserted between every three integer digits by {@link #setValue(long)}
+     * and {@link #setValue(double, int)}, 0 for none (the default).
+     *
+     * @param separator the grouping separator
+     */
+    public void setGroupingSeparator(char separator) {
+        mGroupingSeparator = separator;
+    }
+
+    /**
+     * Returns the current grouping separator, 0 if there is none.
+     */
+    public char getGroupingSeparator() {
+        return mGroupingSeparator;
+    }
+
+    /**
+     * Sets the separator between integer and fraction digits used by
+     * {@link #setValue(double, int)}, the default one is '.'.
+     *
+     * @param separator the decimal separator
+     */
+    public void setDecimalSeparator(char separator) {
+        mDecimalSeparator = separator;
+    }
+
+    /**
+     * Returns the current decimal separator.
+     */
+    public char getDecimalSeparator() {
+        return mDecimalSeparator;
+    }
+
+    /**
+     * Sets whether positive values set by {@link #setValue(long)} and
+     * {@link #setValue(double, int)} are prefixed with a plus sign.
+     */
+    public void setShowPositiveSign(boolean show) {
+        mShowPositiveSign = show;
+    }
+
+    /**
+     * Returns whether positive values are prefixed with a plus sign.
+     */
+    public boolean isShowPositiveSign() {
+        return mShowPositiveSign;
+    }
+
+    /**
+     * Sets whether digits all have the same advance, so that numbers of the same length keep
+     * their width and digits do not shift when their neighbours change. This enables the
+     * {@code tnum} font feature from Lollipop on, before it the digits of the font are used as
+     * they are (those of the system fonts are tabular already).
+     *
+     * @param tabular whether digits are tabular
+     */
+    public void setTabularDigits(boolean tabular) {
+        if (mTabularDigits == tabular) {
+            return;
+        }
+
+        mTabularDigits = tabular;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            mTextPaint.setFontFeatureSettings(tabular ? "tnum" : null);
+
+            releaseGlyphBitmaps();
+            layoutAndTransit(mText, 0, false);
+            mBoundsValid = false;
+            requestLayout();
+            invalidate();
+        }
+    }
+
+    /**
+     * Returns whether digits all have the same advance.
+     */
+    public boolean isTabularDigits() {
+        return mTabularDigits;
+    }
+
+    /**
+     * Reserves the width of given count of digits, so that texts up to that width do not
+     * change the size of this view and are displayed without any layout pass. Combine with
+     * {@link #setTabularDigits(boolean)} for numbers.
+     *
+     * @param slots the count of digits, or 0 to fit the text only
+     * @throws IllegalArgumentException if the count is negative
+     */
+    public void setReservedSlots(int slots) {
+        if (mHelper.getReservedSlots() == slots) {
+            return;
+        }
+
+        mHelper.setReservedSlots(slots);
+        mBoundsValid = false;
+        requestLayout();
+    }
+
+    /**
+     * Returns the count of digits the width is reserved for.
+     */
+    public int getReservedSlots() {
+        return mHelper.getReservedSlots();
+    }
+
     /**
      * Sets whether to suppress(disable) the animations when text changed.
      */
@@ -255,6 +714,77 @@ public class BouncyText extends View {
         mAnimationsSuppressed = suppress;
     }
 
+    /**
+     * Sets whether a text change during a running transition continues from the displayed state
+     * instead of ending the transition first. When enabled, moving characters head to their new
+     * positions from where they are and leaving ones carry on flying out, rather than snapping.
+     * This suits texts updated faster than the animation duration.
+     */
+    public void setRetargetTransitions(boolean retarget) {
+        mEngine.setRetarget(retarget);
+    }
+
+    /**
+     * Returns whether text changes retarget running transitions.
+     *
+     * See also {@link #setRetargetTransitions(boolean)}.
+     */
+    public boolean isRetargetTransitions() {
+        return mEngine.isRetarget();
+    }
+
+    /**
+     * Sets whether characters move on damped springs instead of eased animations of fixed
+     * duration, this is the bounciest mode. Springs always continue from the displayed state when
+     * text changes during a transition, moving characters keep their velocity.
+     *
+     * See also {@link #setSpringStiffness(float)} and {@link #setSpringDampingRatio(float)}.
+     */
+    public void setSpringEnabled(boolean enabled) {
+        mEngine.setSpring(enabled);
+    }
+
+    /**
+     * Returns whether characters move on springs.
+     */
+    public boolean isSpringEnabled() {
+        return mEngine.isSpring();
+    }
+
+    /**
+     * Sets the stiffness of springs, the higher the faster characters reach their places. The
+     * default one is {@link TransitionEngine#DEFAULT_SPRING_STIFFNESS}.
+     *
+     * @param stiffness the stiffness, positive
+     */
+    public void setSpringStiffness(float stiffness) {
+        mEngine.setSpringStiffness(stiffness);
+    }
+
+    /**
+     * Returns the current stiffness of springs.
+     */
+    public float getSpringStiffness() {
+        return mEngine.getSpringStiffness();
+    }
+
+    /**
+     * Sets the damping ratio of springs, characters bounce below 1. The default one is
+     * {@link TransitionEngine#DEFAULT_SPRING_DAMPING_RATIO}.
+     *
+     * @param dampingRatio the damping ratio, positive
+     */
+    public void setSpringDampingRatio(float dampingRatio) {
+        mEngine.setSpringDampingRatio(dampingRatio);
+    }
+
+    /**
+     * Returns the current damping ratio of springs.
+     */
+    public float getSpringDampingRatio() {
+        return mEngine.getSpringDampingRatio();
+    }
+
     /**
      * Sets the animation duration for single characters, the total duration will be this
      * duration multiplies the count of characters changed.
@@ -262,14 +792,14 @@ public class BouncyText extends View {
      * @param animationDuration the duration in milliseconds
      */
     public void setAnimationDuration(int animationDuration) {
-        mAnimationDuration = animationDuration;
+        mEngine.setDuration(animationDuration);
     }
 
     /**
      * Returns the current animation duration.
      */
     public int getAnimationDuration() {
-        return mAnimationDuration;
+        return mEngine.getDuration();
     }
 
     /**
@@ -279,14 +809,14 @@ public class BouncyText extends View {
      * @param stagger the duration in milliseconds
      */
     public void setAnimationStagger(int stagger) {
-        mAnimationStagger = stagger;
+        mEngine.setStagger(stagger);
     }
 
     /**
      * Returns the current animation stagger.
      */
     public int getAnimationStagger() {
-        return mAnimationStagger;
+        return mEngine.getStagger();
     }
 
     /**
@@ -296,11 +826,7 @@ public class BouncyText extends View {
      *                      {@link BouncyText#DIRECTION_DOWNWARD}
      */
     public void setAnimationDirection(@AnimationDirection int direction) {
-        if (direction != DIRECTION_UPWARD && direction != DIRECTION_DOWNWARD) {
-            throw new IllegalArgumentException("Unsupported direction given.");
-        }
-
-        mAnimationDirection = direction;
+        mHelper.setAnimationDirection(direction);
     }
 
     /**
@@ -309,7 +835,147 @@ public class BouncyText extends View {
      * See also {@link #setAnimationDirection(int)}.
      */
     public int getAnimationDirection() {
-        return mAnimationDirection;
+        return mHelper.getAnimationDirection();
+    }
+
+    /**
+     * Sets how characters appear and disappear when text changed, the moved ones always slide.
+     *
+     * @param style see {@link BouncyText#STYLE_FLIP}, {@link BouncyText#STYLE_FADE},
+     *                  {@link BouncyText#STYLE_FADE_SCALE}, {@link BouncyText#STYLE_ROLL}
+     */
+    public void setTransitionStyle(@TransitionStyle int style) {
+        mHelper.setTransitionStyle(style);
+    }
+
+    /**
+     * Returns the current transition style.
+     *
+     * See also {@link #setTransitionStyle(int)}.
+     */
+    public int getTransitionStyle() {
+        return mHelper.getTransitionStyle();
+    }
+
+    /**
+     * Sets the strategy deciding which characters are kept, inserted or removed when text
+     * changed. The default one is {@link MyersDiff}.
+     *
+     * @param strategy the diff strategy
+     */
+    public void setDiffStrategy(DiffStrategy strategy) {
+        mEngine.setDiffStrategy(strategy);
+    }
+
+    /**
+     * Returns the current diff strategy.
+     *
+     * See also {@link #setDiffStrategy(DiffStrategy)}.
+     */
+    public DiffStrategy getDiffStrategy() {
+        return mEngine.getDiffStrategy();
+    }
+
+    /**
+     * Sets whether to draw characters from a bitmap atlas, which is rasterized once for the
+     * current text size, color and typeface and shared by all views with the same configuration.
+     * Characters missing from the atlas alphabet are still drawn as text.
+     *
+     * See also {@link #setGlyphAtlasAlphabet(CharSequence)}.
+     */
+    public void setGlyphAtlasEnabled(boolean enabled) {
+        if (mRenderer.isGlyphAtlasEnabled() == enabled) {
+            return;
+        }
+
+        mRenderer.setGlyphAtlasEnabled(enabled);
+        releaseGlyphBitmaps();
+        invalidate();
+    }
+
+    /**
+     * Returns whether characters are drawn from a glyph atlas.
+     */
+    public boolean isGlyphAtlasEnabled() {
+        return mRenderer.isGlyphAtlasEnabled();
+    }
+
+    /**
+     * Sets the characters to be rasterized into the glyph atlas, the default one contains
+     * digits and common numeral punctuations.
+     *
+     * @param alphabet the characters
+     */
+    public void setGlyphAtlasAlphabet(CharSequence alphabet) {
+        mRenderer.setGlyphAtlasAlphabet(alphabet);
+        releaseGlyphBitmaps();
+        invalidate();
+    }
+
+    /**
+     * Returns the characters rasterized into the glyph atlas.
+     */
+    public CharSequence getGlyphAtlasAlphabet() {
+        return mRenderer.getGlyphAtlasAlphabet();
+    }
+
+    /**
+     * Makes this view share the resources of given scope, or use private ones if null. Views
+     * in a scope hand their glyph storage back when detached from window.
+     *
+     * See also {@link BouncyTextScope}.
+     */
+    public void setResourceScope(BouncyTextScope scope) {
+        if (scope == mHelper.getResourceScope()) {
+            return;
+        }
+
+        mHelper.setResourceScope(scope);
+    }
+
+    /**
+     * Returns the resource scope this view joined, or null.
+     */
+    public BouncyTextScope getResourceScope() {
+        return mHelper.getResourceScope();
+    }
+
+    /**
+     * Sets whether the costs of transitions and frames are recorded, see
+     * {@link BouncyTextMetrics}. Metrics are disabled by default.
+     */
+    public void setMetricsEnabled(boolean enabled) {
+        mMetricsEnabled = enabled;
+        mLastAnimationFrameTime = -1;
+        if (enabled) {
+            updateLateFrameThreshold();
+        }
+    }
+
+    /**
+     * Returns whether the costs of transitions and frames are recorded.
+     */
+    public boolean isMetricsEnabled() {
+        return mMetricsEnabled;
+    }
+
+    /**
+     * Copies the metrics recorded since they were enabled or last reset into given snapshot.
+     *
+     * @param out the snapshot to fill
+     * @return the snapshot given
+     */
+    public BouncyTextMetrics getMetrics(BouncyTextMetrics out) {
+        out.set(mMetrics);
+        return out;
+    }
+
+    /**
+     * Clears the metrics recorded so far.
+     */
+    public void resetMetrics() {
+        mMetrics.reset();
+        mLastAnimationFrameTime = -1;
     }
 
     @Override
@@ -317,6 +983,9 @@ public class BouncyText extends View {
         ensureBoundsRect();
         final int suggestedWidth = (int) mBounds.width();
         final int suggestedHeight = (int) mBounds.height();
+        mMeasured = true;
+        mLastWidthMeasureSpec = widthMeasureSpec;
+        mLastHeightMeasureSpec = heightMeasureSpec;
 
         setMeasuredDimension(resolveSize(suggestedWidth, widthMeasureSpec),
                 resolveSize(suggestedHeight, heightMeasureSpec));
@@ -328,293 +997,330 @@ public class BouncyText extends View {
             // For performance, only rebuild metrics when it is not existed.
             ensureFontMetrics();
         }
-        final float yAdjust = (getHeight() + mFontMetrics.ascent - mFontMetrics.descent) / 2.f
-                - mFontMetrics.ascent;
+        final float yAdjust = getBaselineOffset();
+
+        final long drawStartTime = mMetricsEnabled ? System.nanoTime() : 0;
+        final long frameTime = AnimationUtils.currentAnimationTimeMillis();
+        final TransitionEngine engine = mEngine;
+        // A group advances its views itself, all at once. A frozen clock does not advance.
+        final boolean running = mGroup != null || mClockFrozen
+                ? engine.isAnimating() : engine.advance(frameTime);
 
         final int gState = canvas.save();
         canvas.translate(0, yAdjust);
+        if (mTextScale != 1) {
+            canvas.scale(mTextScale, mTextScale);
+        }
 
-        drawInfoList(canvas, mPrimaryInfos);
-        drawInfoList(canvas, mTransientInfos);
+        // Glyphs entirely out of the clip (in glyph coordinates) are skipped.
+        final Rect clip = mClipBounds;
+        if (!canvas.getClipBounds(clip)) {
+            clip.setEmpty();
+        }
+
+        int drawnCount;
+        // Seeked frames draw every glyph, recording a picture per seek would allocate.
+        if (!mClockFrozen && canDrawPicture(canvas)) {
+            // Replay the glyphs at rest, only the moving ones are drawn one by one.
+            if (!mStaticPictureValid) {
+                recordStaticPicture();
+            }
+            final float slop = getGlyphSlop();
+            canvas.translate(-slop, mFontMetrics.top);
+            canvas.drawPicture(mStaticPicture);
+            canvas.translate(slop, -mFontMetrics.top);
+
+            drawnCount = mHasLiveGlyphs
+                    ? mRenderer.drawGlyphs(canvas, engine.getGlyphs(), mFontMetrics, clip,
+                    mLiveGlyphs, true) : 0;
+            if (!running && mHasLiveGlyphs) {
+                // Every glyph is at rest now, record them all next time.
+                mStaticPictureValid = false;
+            }
+        } else {
+            drawnCount = mRenderer.drawGlyphs(canvas, engine.getGlyphs(), mFontMetrics, clip,
+                    null, false);
+        }
+        drawnCount += mRenderer.drawGlyphs(canvas, engine.getLeavingGlyphs(), mFontMetrics,
+                clip, null, false);
 
         canvas.restoreToCount(gState);
 
-        if (mRunningAnimatorCount > 0) {
-            postInvalidate();
-        } else if (!mEndingAnimators) {
-            mH.post(mAnimatorsCleanupRunnable);
+        boolean onAnimation = false;
+        if (running && mGroup == null && !mClockFrozen) {
+            // Only the area the moving glyphs sweep until their ends will change.
+            final Rect dirty = mDirtyBounds;
+            computeDirtyBounds(dirty, yAdjust);
+
+            final long idleTime =
+                    BouncyTextHelper.getIdleTime(engine.getNextChangeTime(), frameTime);
+            if (idleTime > 0) {
+                postInvalidateDelayed(idleTime, dirty.left, dirty.top, dirty.right, dirty.bottom);
+            } else {
+                ViewCompat.postInvalidateOnAnimation(this, dirty.left, dirty.top, dirty.right,
+                        dirty.bottom);
+                onAnimation = true;
+            }
         }
-    }
 
-    private void drawInfoList(Canvas canvas, List<CharacterInfo> infos) {
-        for (CharacterInfo info : infos) {
-            mSingleCharArray[0] = info.ch;
-            canvas.drawText(mSingleCharArray, 0, 1, info.x, info.y, mTextPaint);
+        if (mMetricsEnabled) {
+            recordFrame(frameTime, running, mGroup == null && !mClockFrozen, onAnimation,
+                    drawnCount, System.nanoTime() - drawStartTime);
         }
     }
 
-    private void ensureFontMetrics() {
-        if (mFontMetrics == null) {
-            mFontMetrics = new Paint.FontMetrics();
-        }
-        mTextPaint.getFontMetrics(mFontMetrics);
+    /**
+     * Returns the vertical offset of the baseline, centering the text in this view.
+     */
+    private float getBaselineOffset() {
+        final float scale = mTextScale;
+        return (getHeight() + (mFontMetrics.ascent - mFontMetrics.descent) * scale) / 2.f
+                - mFontMetrics.ascent * scale;
     }
 
-    private void ensureBoundsRect() {
-        ensureFontMetrics();
-        final float height = mFontMetrics.bottom - mFontMetrics.top;
+    /**
+     * Computes the area of this view the moving glyphs sweep until their ends, as of the last
+     * frame pass.
+     */
+    private void computeDirtyBounds(Rect out, float yAdjust) {
+        final TransitionEngine engine = mEngine;
+        final float slop = getGlyphSlop();
+        final float scale = mTextScale;
+        out.set((int) Math.floor((engine.getDirtyLeft() - slop) * scale),
+                (int) Math.floor((engine.getDirtyTop() + mFontMetrics.top) * scale + yAdjust),
+                (int) Math.ceil((engine.getDirtyRight() + slop) * scale),
+                (int) Math.ceil((engine.getDirtyBottom() + mFontMetrics.bottom) * scale
+                        + yAdjust));
+    }
 
-        if (mBounds != null) {
-            return;
+    /**
+     * Advances the transition of this view on a frame of its group, and invalidates the area
+     * that changes: the one the moving glyphs were to sweep as of the previous frame.
+     *
+     * @return true if the transition is still running
+     */
+    boolean onGroupFrame(long frameTime) {
+        final TransitionEngine engine = mEngine;
+        if (!engine.isAnimating() || mClockFrozen) {
+            return false;
         }
 
-        float accWidth = 0;
-
-        for (int i = 0, s = mPrimaryInfos.size(); i < s; i++) {
-            CharacterInfo info = mPrimaryInfos.get(i);
-            accWidth += info.w;
+        final boolean running = engine.advance(frameTime);
+        if (!engine.isFrameChanged()) {
+            return running;
         }
 
-        mBounds = new RectF(0, 0, accWidth, height);
+        if (mGroupDirtyAll || mFontMetrics == null) {
+            invalidate();
+            mGroupDirtyAll = false;
+        } else {
+            final Rect dirty = mDirtyBounds;
+            invalidate(dirty.left, dirty.top, dirty.right, dirty.bottom);
+        }
+        if (running && mFontMetrics != null) {
+            computeDirtyBounds(mDirtyBounds, getBaselineOffset());
+        }
+        return running;
     }
 
-    private void performTransitions(List<CharacterInfo> newInfos) {
-        ensureFontMetrics();
-        final float height = mFontMetrics.bottom - mFontMetrics.top;
-        final float directionFactor = mAnimationDirection;
-
-        int i, j;
-        int totalDelay = 0;
-
-        boolean shorter = newInfos.size() < mPrimaryInfos.size();
-
-        // TODO: We need a better diff algorithm, right?
-        // Transit all different characters.
-        for (i = mPrimaryInfos.size() - 1, j = newInfos.size() - 1; i >= 0 && j >= 0; i--, j--) {
-            // True if the new info can be replaced by the old info, thus we can recycle
-            // the new info.
-            boolean removeMark = false;
-
-            if (mPrimaryInfos.get(i).ch != newInfos.get(j).ch) {
-                // Animate out
-                CharacterInfo info = mPrimaryInfos.get(i);
-                mTransientInfos.add(info);
-                createAndStartAnimator(info, CharacterInfo.Y, false, -height * directionFactor,
-                        totalDelay);
-
-                // Animate in
-                info = newInfos.get(j);
-                mPrimaryInfos.set(i, info);
-                createAndStartAnimator(info, CharacterInfo.Y, true, height * directionFactor,
-                        totalDelay);
-            } else {
-                removeMark = true;
-            }
-
-            if (mPrimaryInfos.get(i).x != newInfos.get(j).x) {
-                CharacterInfo oldInfo = mPrimaryInfos.get(i);
-                CharacterInfo newInfo = newInfos.get(j);
-                createAndStartAnimator(oldInfo, CharacterInfo.X, false, newInfo.x - oldInfo.x,
-                        totalDelay);
-            }
-
-            if (removeMark) {
-                mInfoPool.release(newInfos.remove(j));
-            }
+    /**
+     * Freezes the clock of this view at given time of the last text change, and displays the
+     * state at that time. Frames are then only drawn on demand, such as by
+     * {@link BouncyTextRecorder}, until {@link #resumeClock()} is called. Seeking back and forth
+     * gives the same frames for the same times.
+     *
+     * <p>Text changed while the clock is frozen starts from the current time as usual, seek
+     * to display it.</p>
+     *
+     * @param time the time in milliseconds since the last text change
+     */
+    public void seekTransition(long time) {
+        mClockFrozen = true;
+        mEngine.seek(mTransitionTime + Math.max(0, time));
+        invalidate();
+    }
 
-            totalDelay += mAnimationStagger;
+    /**
+     * Makes the clock of this view run again after {@link #seekTransition(long)}, transitions
+     * jump to their current state.
+     */
+    public void resumeClock() {
+        if (!mClockFrozen) {
+            return;
         }
 
-        // Remove characters if needed.
-        if (shorter) {
-            // Invalidate the bounds due to text length changing.
-            mBounds = null;
-
-            for (; i >= 0; i--) {
-                CharacterInfo info = mPrimaryInfos.remove(i);
-                mTransientInfos.add(info);
-                createAndStartAnimator(info, CharacterInfo.Y, false, -height * directionFactor,
-                        totalDelay);
-            }
-
-            return;
+        mClockFrozen = false;
+        // Glyphs at rest when the picture was recorded may be moving after the seeks.
+        mStaticPictureValid = false;
+        invalidate();
+        if (mGroup != null && mEngine.isAnimating()) {
+            mGroup.scheduleFrame();
         }
+    }
 
-        // Insert characters if needed.
-        if (j >= 0) {
-            mBounds = null;
+    /**
+     * Returns whether the clock is frozen by {@link #seekTransition(long)}.
+     */
+    public boolean isClockFrozen() {
+        return mClockFrozen;
+    }
 
-            for (; j >= 0; j--) {
-                CharacterInfo info = newInfos.get(j);
-                mPrimaryInfos.add(0, info);
-                createAndStartAnimator(info, CharacterInfo.Y, true, height * directionFactor,
-                        totalDelay);
+    /**
+     * Returns whether a transition is running.
+     */
+    public boolean isAnimating() {
+        return mEngine.isAnimating();
+    }
 
-                totalDelay += mAnimationStagger;
-            }
-        }
+    /**
+     * Returns the earliest time a glyph of this view changes, as of the last frame pass.
+     */
+    long getNextChangeTime() {
+        return mEngine.getNextChangeTime();
     }
 
-    private void endAnimators() {
-        for (Animator animator : mActiveAnimators) {
-            animator.end();
+    /**
+     * Records a drawn frame.
+     *
+     * @param advanced whether this frame advanced the engine, rather than the group or a seek
+     */
+    private void recordFrame(long frameTime, boolean running, boolean advanced,
+                             boolean onAnimation, int drawnCount, long drawTime) {
+        final BouncyTextMetrics metrics = mMetrics;
+        metrics.frameCount++;
+        metrics.drawnGlyphCount += drawnCount;
+        metrics.drawTimeNanos += drawTime;
+        metrics.maxDrawTimeNanos = Math.max(metrics.maxDrawTimeNanos, drawTime);
+        // Whether the frame changed is only known for the advance of this frame.
+        if (running && advanced && !mEngine.isFrameChanged()) {
+            metrics.unchangedFrameCount++;
         }
-
-        mRunningAnimatorCount = 0;
-        mEndingAnimators = true;
-
-        mAnimatorsCleanupRunnable.run();
-        invalidate();
+        // Only frames requested on animation are expected one frame budget later.
+        if (mLastAnimationFrameTime >= 0
+                && frameTime - mLastAnimationFrameTime > mLateFrameThreshold) {
+            metrics.lateFrameCount++;
+        }
+        mLastAnimationFrameTime = onAnimation ? frameTime : -1;
     }
 
     /**
-     * Create a animator for character moving and start it immediately.
-     * @param info the character to be animated
-     * @param in whether to initiate a transition-in animation
-     * @param delta the delta for start/end state
-     * @param delay the delay of animation
+     * Derives the late frame threshold from the refresh rate of the display of this view, if it
+     * is known.
      */
-    private void createAndStartAnimator(CharacterInfo info, Property<CharacterInfo, Float> prop,
-                                            boolean in, float delta, int delay) {
-        final float startValue;
-        final float endValue;
-        if (in) {
-            endValue = prop.get(info);
-            startValue = endValue + delta;
+    private void updateLateFrameThreshold() {
+        final Display display;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+            display = getDisplay();
         } else {
-            startValue = prop.get(info);
-            endValue = startValue + delta;
+            display = ViewCompat.isAttachedToWindow(this) ? ((WindowManager) getContext()
+                    .getSystemService(Context.WINDOW_SERVICE)).getDefaultDisplay() : null;
         }
-
-        prop.set(info, startValue);
-
-        Animator animator = ObjectAnimator.ofFloat(info, prop, startValue, endValue);
-        animator.setDuration(mAnimationDuration);
-        animator.setStartDelay(delay);
-        animator.addListener(new AnimatorListenerAdapter() {
-            @Override
-            public void onAnimationEnd(Animator animation) {
-                mRunningAnimatorCount--;
-            }
-        });
-
-        mActiveAnimators.add(animator);
-        animator.start();
-        mRunningAnimatorCount++;
+        final float refreshRate = display != null ? display.getRefreshRate() : 0;
+        mLateFrameThreshold = getLateFrameThreshold(
+                refreshRate > 0 ? refreshRate : DEFAULT_REFRESH_RATE);
     }
 
-    private List<CharacterInfo> generateInfos(String text) {
-        List<CharacterInfo> infos = new ArrayList<>();
-        final char[] chars = text.toCharArray();
-
-        float x = 0;
+    private static long getLateFrameThreshold(float refreshRate) {
+        return Math.round(LATE_FRAME_INTERVALS * 1000 / refreshRate);
+    }
 
-        final float[] widths = new float[text.length()];
-        mTextPaint.getTextWidths(text, widths);
+    /**
+     * Returns the horizontal room taken around glyph advances for overhanging glyph shapes.
+     */
+    private float getGlyphSlop() {
+        return mRenderer.getGlyphSlop();
+    }
 
-        for (int i = 0; i < chars.length; i++) {
-            mTextPaint.getTextBounds(chars, i, 1, mTmpRect);
-            CharacterInfo info = acquireInfo();
-            info.set(chars[i], x, 0, widths[i], 1);
-            x += widths[i];
-            infos.add(info);
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        if (mMetricsEnabled) {
+            updateLateFrameThreshold();
         }
+        if (mEngine.isRecycled()) {
+            // Lay out the text again into storage from the scope.
+            layoutAndTransit(mText, 0, false);
+        }
+    }
 
-        return infos;
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        if (mHelper.getResourceScope() != null) {
+            mEngine.recycleStores();
+        }
+        releaseGlyphBitmaps();
+        mStaticPicture = null;
     }
 
     /**
-     * Returns a pooled info object or create a new one when pool is empty.
+     * Returns whether pictures can be played back on given canvas, hardware accelerated ones
+     * only support them from Android M on.
      */
-    private CharacterInfo acquireInfo() {
-        CharacterInfo info = mInfoPool.acquire();
-        if (info == null) {
-            info = new CharacterInfo();
-        }
-        return info;
+    private static boolean canDrawPicture(Canvas canvas) {
+        return !canvas.isHardwareAccelerated() || Build.VERSION.SDK_INT >= Build.VERSION_CODES.M;
     }
 
     /**
-     * A structure that records a series of into for drawing a single char.
-     *
-     * Note that the y coordinate stands for the "baseline" of a glyph, for
-     * more information see
-     * {@see <a href="https://developer.android.com/reference/android/graphics/Paint.FontMetrics.html">
-     * Paint.FontMetrics</a>}.
+     * Records the displayed glyphs that are not moving into the static picture, starting from
+     * the top left of the text plus the glyph slop, and remembers the other ones.
      */
-    private static class CharacterInfo {
-        char ch;
-        float x;
-        float y;
-        float w;  // width
-        float a;  // alpha
-
-        final static Property<CharacterInfo, Float> X =
-                new Property<CharacterInfo, Float>(Float.class, "x") {
-                    @Override
-                    public void set(CharacterInfo object, Float value) {
-                        object.x = value;
-                    }
+    private void recordStaticPicture() {
+        final GlyphStore glyphs = mEngine.getGlyphs();
+        final int size = glyphs.size;
+        if (mLiveGlyphs.length < size) {
+            mLiveGlyphs = new boolean[Math.max(size, mLiveGlyphs.length * 2)];
+        }
+        if (mStaticPicture == null) {
+            mStaticPicture = new Picture();
+        }
 
-                    @Override
-                    public Float get(CharacterInfo object) {
-                        return object.x;
-                    }
-                };
+        final float slop = getGlyphSlop();
+        final Canvas canvas = mStaticPicture.beginRecording(
+                (int) Math.ceil(glyphs.totalWidth() + slop * 2),
+                (int) Math.ceil(mFontMetrics.bottom - mFontMetrics.top));
+        canvas.translate(slop, -mFontMetrics.top);
+
+        final boolean[] animating = glyphs.animating;
+        boolean hasLiveGlyphs = false;
+        for (int i = 0; i < size; i++) {
+            mLiveGlyphs[i] = animating[i];
+            hasLiveGlyphs |= animating[i];
+        }
+        mRenderer.drawGlyphs(canvas, glyphs, mFontMetrics, null, mLiveGlyphs, false);
 
-        final static Property<CharacterInfo, Float> Y =
-                new Property<CharacterInfo, Float>(Float.class, "y") {
-                    @Override
-                    public void set(CharacterInfo object, Float value) {
-                        object.y = value;
-                    }
+        mStaticPicture.endRecording();
+        mHasLiveGlyphs = hasLiveGlyphs;
+        mStaticPictureValid = true;
+    }
 
-                    @Override
-                    public Float get(CharacterInfo object) {
-                        return object.y;
-                    }
-                };
+    /**
+     * Gives up the bitmaps rasterized with the paint of the moment.
+     */
+    private void releaseGlyphBitmaps() {
+        // The static picture may hold glyphs drawn from the atlas or with an old paint.
+        mStaticPictureValid = false;
+        mRenderer.releaseBitmaps();
+    }
 
-        void set(char ch, float x, float y, float w, float a) {
-            this.ch = ch;
-            this.x = x;
-            this.y = y;
-            this.w = w;
-            this.a = a;
+    private void ensureFontMetrics() {
+        if (mFontMetrics == null) {
+            mFontMetrics = new Paint.FontMetrics();
         }
+        mHelper.ensureAdvanceCache().getFontMetrics(mFontMetrics);
     }
 
-    private static class SimplePool<T> {
-        final Object[] mPool;
-
-        int mPoolSize = 0;
-
-        SimplePool(int poolSize) {
-            if (poolSize <= 0) {
-                throw new IllegalArgumentException("The pool size must be larger than 0");
-            }
-            mPool = new Object[poolSize];
-        }
+    private void ensureBoundsRect() {
+        ensureFontMetrics();
+        final float height = mFontMetrics.bottom - mFontMetrics.top;
 
-        @SuppressWarnings("unchecked")
-        T acquire() {
-            if (mPoolSize > 0) {
-                final int lastPooledIndex = mPoolSize - 1;
-                T instance = (T) mPool[lastPooledIndex];
-                mPool[lastPooledIndex] = null;
-                mPoolSize--;
-                return instance;
-            }
-            return null;
+        if (mBoundsValid) {
+            return;
         }
 
-        boolean release(T instance) {
-            if (mPoolSize < mPool.length) {
-                mPool[mPoolSize++] = instance;
-                return true;
-            }
-            return false;
-        }
+        final float width = mHelper.getLayoutWidth();
+        mBounds.set(0, 0, width * mTextScale, height * mTextScale);
+        mBoundsValid = true;
     }
 
 }
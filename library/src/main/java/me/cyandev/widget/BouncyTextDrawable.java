@@ -0,0 +1,454 @@
+/*
+ * Copyright (C) 2017 Cyandev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.cyandev.widget;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.ColorFilter;
+import android.graphics.Paint;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.graphics.Typeface;
+import android.graphics.drawable.Drawable;
+import android.os.SystemClock;
+import android.text.TextPaint;
+import android.text.TextUtils;
+import android.view.animation.AnimationUtils;
+
+import me.cyandev.widget.core.TransitionEngine;
+
+/**
+ * A drawable displaying text with the transitions of {@link BouncyText}, without any view. This
+ * fits animated values inside list rows, as compound drawables of a {@code TextView} or inside
+ * text with {@link BouncyTextSpan}, where a view per value would cost a measure, a layout and an
+ * invalidation path each.
+ *
+ * <p>Frames are requested through the {@link Drawable.Callback} of the drawable, texts change
+ * without animation while it has none or is not visible. The text is drawn from the left of the
+ * bounds, vertically centered. Its intrinsic size follows the text, the host has to update the
+ * bounds when it changes, or reserve a width with {@link #setReservedSlots(int)}.</p>
+ *
+ * <p>Drawables joining a {@link BouncyTextScope} share the measured configurations and the
+ * glyph storage with the views of the scope. A hidden drawable (see
+ * {@link #setVisible(boolean, boolean)}, views hide their drawables once detached from Nougat
+ * on) gives up its shared bitmaps and hands its glyph storage back to the scope. A drawable
+ * should only be used on the main thread.</p>
+ */
+public class BouncyTextDrawable extends Drawable {
+
+    private final TextPaint mTextPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint.FontMetrics mFontMetrics = new Paint.FontMetrics();
+    private final GlyphRenderer mRenderer = new GlyphRenderer(mTextPaint);
+    private final TransitionEngine mEngine = new TransitionEngine();
+    private final BouncyTextHelper mHelper =
+            new BouncyTextHelper(mTextPaint, mEngine, mRenderer);
+
+    private CharSequence mText = "";
+    private char mGroupingSeparator = 0;
+    private char mDecimalSeparator = '.';
+
+    private int mTextColor = Color.BLACK;
+    private int mAlpha = 255;
+
+    private final Runnable mInvalidate = new Runnable() {
+        @Override
+        public void run() {
+            invalidateSelf();
+        }
+    };
+
+    public BouncyTextDrawable() {
+        this(null);
+    }
+
+    /**
+     * @param scope the resources to share, or null to use private ones
+     */
+    public BouncyTextDrawable(BouncyTextScope scope) {
+        mHelper.setResourceScope(scope);
+        mTextPaint.setColor(mTextColor);
+        ensureFontMetrics();
+    }
+
+    /**
+     * Sets the text to be displayed, this will cause a transition if the drawable is visible
+     * and has a callback.
+     *
+     * @param text the string
+     */
+    public void setText(CharSequence text) {
+        text = text == null ? "" : text;
+
+        if (TextUtils.equals(mText, text)) {
+            return;
+        }
+
+        applyText(text);
+    }
+
+    /**
+     * Returns the text displayed. See {@link BouncyText#getText()}.
+     */
+    public CharSequence getText() {
+        return mText;
+    }
+
+    /**
+     * Sets an integer to be displayed without allocating any string. See
+     * {@link BouncyText#setValue(long)}.
+     *
+     * @param value the value
+     */
+    public void setValue(long value) {
+        mHelper.getNextNumeral().setLong(value, mGroupingSeparator, false);
+        applyNextNumeral();
+    }
+
+    /**
+     * Sets a number to be displayed with a fixed count of fraction digits without allocating
+     * any string. See {@link BouncyText#setValue(double, int)}.
+     *
+     * @param value the value
+     * @param precision the count of fraction digits, from 0 to 18
+     */
+    public void setValue(double value, int precision) {
+        mHelper.getNextNumeral().setDouble(value, precision, mGroupingSeparator,
+                mDecimalSeparator, false);
+        applyNextNumeral();
+    }
+
+    private void applyNextNumeral() {
+        final NumeralBuffer numeral = mHelper.swapNumerals(mText);
+        if (numeral != null) {
+            applyText(numeral);
+        }
+    }
+
+    private void applyText(CharSequence text) {
+        mText = text;
+
+        final boolean animate = getCallback() != null && isVisible();
+        ensureFontMetrics();
+        mHelper.layoutAndTransit(text, AnimationUtils.currentAnimationTimeMillis(),
+                mHelper.getTravel(mFontMetrics), animate, 0);
+        invalidateSelf();
+    }
+
+    /**
+     * Sets the separator inserted every three integer digits by the {@code setValue} methods, or
+     * 0 for none (the default).
+     */
+    public void setGroupingSeparator(char separator) {
+        mGroupingSeparator = separator;
+    }
+
+    /**
+     * Sets the separator between integer and fraction digits used by
+     * {@link #setValue(double, int)}, the default one is '.'.
+     */
+    public void setDecimalSeparator(char separator) {
+        mDecimalSeparator = separator;
+    }
+
+    /**
+     * Copies the text configuration (size, typeface, color and flags) of given paint, such as
+     * the one of the {@code TextView} hosting this drawable. Running transitions carry on with
+     * the new configuration.
+     */
+    public void setTextPaint(Paint paint) {
+        final float textSize = mTextPaint.getTextSize();
+        mTextPaint.set(paint);
+        mTextColor = paint.getColor();
+        applyAlpha();
+        onTextPaintChanged(textSize);
+    }
+
+    /**
+     * Sets the text size in pixels, running transitions carry on at the new size.
+     */
+    public void setTextSize(float size) {
+        final float textSize = mTextPaint.getTextSize();
+        if (size == textSize) {
+            return;
+        }
+
+        mTextPaint.setTextSize(size);
+        onTextPaintChanged(textSize);
+    }
+
+    public float getTextSize() {
+        return mTextPaint.getTextSize();
+    }
+
+    /**
+     * Sets the typeface to draw the text with, or null for the default one. Running transitions
+     * carry on to the positions of the characters with the new typeface.
+     */
+    public void setTypeface(Typeface typeface) {
+        if (mTextPaint.getTypeface() == typeface) {
+            return;
+        }
+
+        mTextPaint.setTypeface(typeface);
+        onTextPaintChanged(mTextPaint.getTextSize());
+    }
+
+    public Typeface getTypeface() {
+        return mTextPaint.getTypeface();
+    }
+
+    public void setTextColor(int color) {
+        mTextColor = color;
+        applyAlpha();
+        mRenderer.releaseBitmaps();
+        invalidateSelf();
+    }
+
+    public int getTextColor() {
+        return mTextColor;
+    }
+
+    /**
+     * Measures the displayed glyphs again after a change of the paint, keeping their
+     * transitions. Glyphs are scaled first if the text size changed, so the travel of the
+     * running transitions follows the new size. See {@link BouncyText#setTextSize(int, float)}.
+     *
+     * @param oldTextSize the text size before the change
+     */
+    private void onTextPaintChanged(float oldTextSize) {
+        final float textSize = mTextPaint.getTextSize();
+        if (oldTextSize > 0 && textSize != oldTextSize) {
+            mEngine.scale(textSize / oldTextSize);
+        }
+        mRenderer.releaseBitmaps();
+        ensureFontMetrics();
+        mHelper.remeasure();
+        invalidateSelf();
+    }
+
+    /**
+     * Reserves the width of given count of digits in the intrinsic width, so that texts up to
+     * that width keep it. See {@link BouncyText#setReservedSlots(int)}.
+     *
+     * @param slots the count of digits, or 0 to fit the text only
+     * @throws IllegalArgumentException if the count is negative
+     */
+    public void setReservedSlots(int slots) {
+        mHelper.setReservedSlots(slots);
+    }
+
+    public int getReservedSlots() {
+        return mHelper.getReservedSlots();
+    }
+
+    /**
+     * See {@link BouncyText#setAnimationDuration(int)}.
+     */
+    public void setAnimationDuration(int animationDuration) {
+        mEngine.setDuration(animationDuration);
+    }
+
+    public int getAnimationDuration() {
+        return mEngine.getDuration();
+    }
+
+    /**
+     * See {@link BouncyText#setAnimationStagger(int)}.
+     */
+    public void setAnimationStagger(int stagger) {
+        mEngine.setStagger(stagger);
+    }
+
+    public int getAnimationStagger() {
+        return mEngine.getStagger();
+    }
+
+    /**
+     * See {@link BouncyText#setAnimationDirection(int)}.
+     */
+    public void setAnimationDirection(@BouncyText.AnimationDirection int direction) {
+        mHelper.setAnimationDirection(direction);
+    }
+
+    public int getAnimationDirection() {
+        return mHelper.getAnimationDirection();
+    }
+
+    /**
+     * See {@link BouncyText#setTransitionStyle(int)}.
+     */
+    public void setTransitionStyle(@BouncyText.TransitionStyle int style) {
+        mHelper.setTransitionStyle(style);
+    }
+
+    public int getTransitionStyle() {
+        return mHelper.getTransitionStyle();
+    }
+
+    /**
+     * See {@link BouncyText#setSpringEnabled(boolean)}.
+     */
+    public void setSpringEnabled(boolean enabled) {
+        mEngine.setSpring(enabled);
+    }
+
+    public boolean isSpringEnabled() {
+        return mEngine.isSpring();
+    }
+
+    /**
+     * Returns whether a transition is running.
+     */
+    public boolean isAnimating() {
+        return mEngine.isAnimating();
+    }
+
+    @Override
+    public void draw(Canvas canvas) {
+        final Rect bounds = getBounds();
+        final Paint.FontMetrics fm = mFontMetrics;
+        final float baseline = bounds.top
+                + (bounds.height() + fm.ascent - fm.descent) / 2.f - fm.ascent;
+        draw(canvas, bounds.left, baseline);
+    }
+
+    /**
+     * Draws the text with the baseline origin at (x, y), and requests the next frame if a
+     * transition is running.
+     */
+    void draw(Canvas canvas, float x, float y) {
+        ensureStores();
+        final long frameTime = AnimationUtils.currentAnimationTimeMillis();
+        final TransitionEngine engine = mEngine;
+        final boolean running = engine.advance(frameTime);
+
+        final int saveCount = canvas.save();
+        canvas.translate(x, y);
+        mRenderer.drawGlyphs(canvas, engine.getGlyphs(), mFontMetrics, null, null, false);
+        mRenderer.drawGlyphs(canvas, engine.getLeavingGlyphs(), mFontMetrics, null, null,
+                false);
+        canvas.restoreToCount(saveCount);
+
+        if (running) {
+            final long idleTime =
+                    BouncyTextHelper.getIdleTime(engine.getNextChangeTime(), frameTime);
+            if (idleTime > 0) {
+                scheduleSelf(mInvalidate, SystemClock.uptimeMillis() + idleTime);
+            } else {
+                invalidateSelf();
+            }
+        }
+    }
+
+    @Override
+    public boolean setVisible(boolean visible, boolean restart) {
+        final boolean changed = super.setVisible(visible, restart);
+        if (!visible) {
+            // Nobody watches, jump to the end.
+            unscheduleSelf(mInvalidate);
+            mEngine.end();
+            releaseResources();
+        } else {
+            ensureStores();
+        }
+        return changed;
+    }
+
+    /**
+     * Gives up the bitmaps obtained for drawing, and hands the glyph storage back to the scope
+     * if any, as a view detached from window does.
+     */
+    private void releaseResources() {
+        mRenderer.releaseBitmaps();
+        if (mHelper.getResourceScope() != null) {
+            mEngine.recycleStores();
+        }
+    }
+
+    /**
+     * Lays out the text again into storage from the scope, once it was handed back.
+     */
+    private void ensureStores() {
+        if (mEngine.isRecycled()) {
+            mHelper.layoutAndTransit(mText, AnimationUtils.currentAnimationTimeMillis(), 0,
+                    false, 0);
+        }
+    }
+
+    @Override
+    public int getIntrinsicWidth() {
+        ensureStores();
+        return (int) Math.ceil(mHelper.getLayoutWidth());
+    }
+
+    @Override
+    public int getIntrinsicHeight() {
+        return (int) Math.ceil(mFontMetrics.bottom - mFontMetrics.top);
+    }
+
+    /**
+     * Copies the font metrics of the text, rounded outward, into given one.
+     */
+    void getFontMetricsInt(Paint.FontMetricsInt out) {
+        final Paint.FontMetrics fm = mFontMetrics;
+        out.top = (int) Math.floor(fm.top);
+        out.ascent = (int) Math.floor(fm.ascent);
+        out.descent = (int) Math.ceil(fm.descent);
+        out.bottom = (int) Math.ceil(fm.bottom);
+        out.leading = (int) Math.ceil(fm.leading);
+    }
+
+    @Override
+    public void setAlpha(int alpha) {
+        if (mAlpha == alpha) {
+            return;
+        }
+
+        mAlpha = alpha;
+        applyAlpha();
+        // The bitmaps are rasterized with the color of the paint.
+        mRenderer.releaseBitmaps();
+        invalidateSelf();
+    }
+
+    @Override
+    public int getAlpha() {
+        return mAlpha;
+    }
+
+    private void applyAlpha() {
+        mTextPaint.setColor(mTextColor);
+        mTextPaint.setAlpha(Color.alpha(mTextColor) * mAlpha / 255);
+    }
+
+    @Override
+    public void setColorFilter(ColorFilter colorFilter) {
+        mTextPaint.setColorFilter(colorFilter);
+        mRenderer.releaseBitmaps();
+        invalidateSelf();
+    }
+
+    @Override
+    public int getOpacity() {
+        return PixelFormat.TRANSLUCENT;
+    }
+
+    private void ensureFontMetrics() {
+        mHelper.ensureAdvanceCache().getFontMetrics(mFontMetrics);
+    }
+
+}
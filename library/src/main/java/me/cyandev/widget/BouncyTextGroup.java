@@ -0,0 +1,254 @@
+/*
+ * Copyright (C) 2017 Cyandev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.cyandev.widget;
+
+import android.support.v4.view.ViewCompat;
+import android.view.animation.AnimationUtils;
+
+import java.util.ArrayList;
+
+/**
+ * Coordinates several {@link BouncyText}s updated together, such as the cells of a dashboard.
+ *
+ * <p>The transitions of all the views are driven by a single frame callback: every frame
+ * advances them in one pass and only invalidates the views that changed, in the area that
+ * changed. Values set through the group start the transitions of consecutive views with a
+ * stagger of {@link #setStagger(int)}, only counting the views whose text actually changed.</p>
+ *
+ * <p>Groups must only be used on the main thread. Views are held until removed.</p>
+ */
+public final class BouncyTextGroup {
+
+    private final ArrayList<BouncyText> mViews = new ArrayList<>();
+
+    private int mStagger = 30;
+
+    private boolean mFramePosted = false;
+    /** The view the posted frame runs on and the time it is due, to post an earlier one. */
+    private BouncyText mFrameAnchor;
+    private long mFrameTime;
+    private final Runnable mFrameCallback = new Runnable() {
+        @Override
+        public void run() {
+            mFramePosted = false;
+            mFrameAnchor = null;
+            doFrame();
+        }
+    };
+
+    /**
+     * Adds a view to this group, it leaves any other group.
+     */
+    public void add(BouncyText view) {
+        if (view.mGroup == this) {
+            return;
+        }
+        if (view.mGroup != null) {
+            view.mGroup.remove(view);
+        }
+
+        mViews.add(view);
+        view.mGroup = this;
+        if (view.isAnimating()) {
+            scheduleFrame();
+        }
+    }
+
+    /**
+     * Removes a view from this group, it drives its transitions by itself again.
+     */
+    public void remove(BouncyText view) {
+        if (view.mGroup != this) {
+            return;
+        }
+
+        mViews.remove(view);
+        view.mGroup = null;
+        view.mTransitionStartDelay = 0;
+        // Resume the frames of a running transition.
+        view.invalidate();
+    }
+
+    /**
+     * Returns the count of views in this group.
+     */
+    public int size() {
+        return mViews.size();
+    }
+
+    /**
+     * Returns the view at given index, in the order they were added.
+     */
+    public BouncyText get(int index) {
+        return mViews.get(index);
+    }
+
+    /**
+     * Sets the delay between the transitions of two consecutive views that change at once.
+     *
+     * @param stagger the delay in milliseconds
+     */
+    public void setStagger(int stagger) {
+        mStagger = stagger;
+    }
+
+    /**
+     * Returns the current delay between the transitions of consecutive views.
+     */
+    public int getStagger() {
+        return mStagger;
+    }
+
+    /**
+     * Sets an integer to every view, see {@link BouncyText#setValue(long)}.
+     *
+     * @param values one value per view, in the order they were added
+     */
+    public void setValues(long[] values) {
+        checkCount(values.length);
+
+        int delay = 0;
+        for (int i = 0; i < values.length; i++) {
+            final BouncyText view = mViews.get(i);
+            final int count = view.mTransitionCount;
+            view.mTransitionStartDelay = delay;
+            view.setValue(values[i]);
+            view.mTransitionStartDelay = 0;
+            if (view.mTransitionCount != count) {
+                delay += mStagger;
+            }
+        }
+    }
+
+    /**
+     * Sets a number to every view, see {@link BouncyText#setValue(double, int)}.
+     *
+     * @param values one value per view, in the order they were added
+     * @param precision the count of fraction digits
+     */
+    public void setValues(double[] values, int precision) {
+        checkCount(values.length);
+
+        int delay = 0;
+        for (int i = 0; i < values.length; i++) {
+            final BouncyText view = mViews.get(i);
+            final int count = view.mTransitionCount;
+            view.mTransitionStartDelay = delay;
+            view.setValue(values[i], precision);
+            view.mTransitionStartDelay = 0;
+            if (view.mTransitionCount != count) {
+                delay += mStagger;
+            }
+        }
+    }
+
+    /**
+     * Sets a text to every view, see {@link BouncyText#setText(CharSequence)}.
+     *
+     * @param texts one text per view, in the order they were added
+     */
+    public void setTexts(CharSequence[] texts) {
+        checkCount(texts.length);
+
+        int delay = 0;
+        for (int i = 0; i < texts.length; i++) {
+            final BouncyText view = mViews.get(i);
+            final int count = view.mTransitionCount;
+            view.mTransitionStartDelay = delay;
+            view.setText(texts[i]);
+            view.mTransitionStartDelay = 0;
+            if (view.mTransitionCount != count) {
+                delay += mStagger;
+            }
+        }
+    }
+
+    private void checkCount(int count) {
+        if (count != mViews.size()) {
+            throw new IllegalArgumentException("Expected " + mViews.size() + " values but got "
+                    + count + ".");
+        }
+    }
+
+    /**
+     * Makes sure a frame of this group is coming on the next animation frame.
+     */
+    void scheduleFrame() {
+        scheduleFrame(0);
+    }
+
+    /**
+     * Makes sure a frame of this group is coming within given delay, a frame posted for later
+     * (while the group sleeps) is replaced.
+     */
+    private void scheduleFrame(long delay) {
+        final long frameTime = AnimationUtils.currentAnimationTimeMillis() + delay;
+        if (mFramePosted && mFrameTime <= frameTime) {
+            return;
+        }
+
+        final BouncyText anchor = findAnchor();
+        if (anchor == null) {
+            return;
+        }
+
+        if (mFramePosted) {
+            mFrameAnchor.removeCallbacks(mFrameCallback);
+        }
+        if (delay > 0) {
+            ViewCompat.postOnAnimationDelayed(anchor, mFrameCallback, delay);
+        } else {
+            ViewCompat.postOnAnimation(anchor, mFrameCallback);
+        }
+        mFramePosted = true;
+        mFrameAnchor = anchor;
+        mFrameTime = frameTime;
+    }
+
+    /**
+     * Returns the view to post frames with, an attached one if any.
+     */
+    private BouncyText findAnchor() {
+        final ArrayList<BouncyText> views = mViews;
+        for (int i = 0, s = views.size(); i < s; i++) {
+            if (ViewCompat.isAttachedToWindow(views.get(i))) {
+                return views.get(i);
+            }
+        }
+        return views.isEmpty() ? null : views.get(0);
+    }
+
+    private void doFrame() {
+        final long frameTime = AnimationUtils.currentAnimationTimeMillis();
+        long nextChangeTime = Long.MAX_VALUE;
+        boolean running = false;
+
+        final ArrayList<BouncyText> views = mViews;
+        for (int i = 0, s = views.size(); i < s; i++) {
+            final BouncyText view = views.get(i);
+            if (view.onGroupFrame(frameTime)) {
+                running = true;
+                nextChangeTime = Math.min(nextChangeTime, view.getNextChangeTime());
+            }
+        }
+
+        if (running) {
+            scheduleFrame(BouncyTextHelper.getIdleTime(nextChangeTime, frameTime));
+        }
+    }
+
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright (C) 2017 Cyandev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.cyandev.widget;
+
+import android.graphics.Paint;
+import android.text.TextUtils;
+
+import me.cyandev.widget.core.TransitionEngine;
+
+/**
+ * Holds the text state and makes the layout and timing decisions shared by {@link BouncyText}
+ * and {@link BouncyTextDrawable}: the advance cache of the paint, the numeral buffers, the
+ * transition style and direction, the reserved width and when the next frame is due. Each host
+ * only keeps its bounds, invalidates itself and draws with {@link GlyphRenderer}.
+ */
+final class BouncyTextHelper {
+
+    /** Idle periods shorter than this (in milliseconds) are not worth skipping frames. */
+    private static final long IDLE_FRAME_THRESHOLD = 16;
+
+    private final Paint mTextPaint;
+    private final TransitionEngine mEngine;
+    private final GlyphRenderer mRenderer;
+
+    /** The shared resources joined, or null. */
+    private BouncyTextScope mResourceScope;
+    /** Advances of the characters measured so far with the text paint, obtained lazily. */
+    private AdvanceCache mAdvanceCache;
+
+    /** Numbers are formatted into these buffers, one displayed and one for the next value. */
+    private NumeralBuffer mNumeral = new NumeralBuffer();
+    private NumeralBuffer mNextNumeral = new NumeralBuffer();
+
+    private int mAnimationDirection = BouncyText.DIRECTION_UPWARD;
+    private int mTransitionStyle = BouncyText.STYLE_FLIP;
+    /** The count of digits the width is reserved for. */
+    private int mReservedSlots = 0;
+
+    /**
+     * @param textPaint the paint the text is measured with
+     * @param engine the engine laying out the text
+     * @param renderer the renderer drawing the glyphs of the engine
+     */
+    BouncyTextHelper(Paint textPaint, TransitionEngine engine, GlyphRenderer renderer) {
+        mTextPaint = textPaint;
+        mEngine = engine;
+        mRenderer = renderer;
+    }
+
+    /**
+     * Makes the host share the resources of given scope, or use private ones if null.
+     */
+    void setResourceScope(BouncyTextScope scope) {
+        mResourceScope = scope;
+        mEngine.setResources(scope != null ? scope.getTransitionResources() : null);
+        mAdvanceCache = null;
+    }
+
+    BouncyTextScope getResourceScope() {
+        return mResourceScope;
+    }
+
+    /**
+     * Returns the advance cache matching the current paint configuration, the one of the scope
+     * if the host joined one.
+     */
+    AdvanceCache ensureAdvanceCache() {
+        final BouncyTextScope scope = mResourceScope;
+        if (scope == null) {
+            if (mAdvanceCache == null) {
+                mAdvanceCache = new AdvanceCache(mTextPaint);
+            }
+            mAdvanceCache.validate();
+        } else if (mAdvanceCache == null || !mAdvanceCache.matches(mTextPaint)) {
+            mAdvanceCache = scope.obtainAdvanceCache(mTextPaint);
+        }
+        return mAdvanceCache;
+    }
+
+    /**
+     * Lays out given text and transits to it, then prepares the text runs of the new layout. A
+     * {@link PrecomputedBouncyText} matching the paint is laid out without any measurement.
+     */
+    void layoutAndTransit(CharSequence text, long now, float travel, boolean animate,
+                          int startDelay) {
+        final AdvanceCache cache = ensureAdvanceCache();
+        if (text instanceof PrecomputedBouncyText
+                && ((PrecomputedBouncyText) text).getParams().matches(mTextPaint)) {
+            mEngine.layout(text, ((PrecomputedBouncyText) text).mAdvances);
+        } else {
+            mEngine.layout(text, cache);
+        }
+        mEngine.transit(now, travel, animate, startDelay);
+        mRenderer.prepareRuns(mEngine.getGlyphs(), cache);
+    }
+
+    /**
+     * Measures the displayed glyphs again once the paint metrics changed, keeping their
+     * transitions.
+     */
+    void remeasure() {
+        final AdvanceCache cache = ensureAdvanceCache();
+        mEngine.remeasure(cache);
+        mRenderer.prepareRuns(mEngine.getGlyphs(), cache);
+    }
+
+    /**
+     * Returns the buffer the next number is formatted into.
+     */
+    NumeralBuffer getNextNumeral() {
+        return mNextNumeral;
+    }
+
+    /**
+     * Makes the next numeral the displayed one, unless it is given displayed text already.
+     *
+     * @return the numeral to display, or null if the text does not change
+     */
+    NumeralBuffer swapNumerals(CharSequence displayed) {
+        if (TextUtils.equals(displayed, mNextNumeral)) {
+            return null;
+        }
+
+        final NumeralBuffer numeral = mNumeral;
+        mNumeral = mNextNumeral;
+        mNextNumeral = numeral;
+        return mNumeral;
+    }
+
+    /**
+     * See {@link BouncyText#setAnimationDirection(int)}.
+     *
+     * @throws IllegalArgumentException if the direction is unknown
+     */
+    void setAnimationDirection(int direction) {
+        if (direction != BouncyText.DIRECTION_UPWARD
+                && direction != BouncyText.DIRECTION_DOWNWARD) {
+            throw new IllegalArgumentException("Unsupported direction given.");
+        }
+
+        mAnimationDirection = direction;
+    }
+
+    int getAnimationDirection() {
+        return mAnimationDirection;
+    }
+
+    /**
+     * Sets the transition style of the engine and the renderer, see
+     * {@link BouncyText#setTransitionStyle(int)}.
+     *
+     * @throws IllegalArgumentException if the style is unknown
+     */
+    void setTransitionStyle(int style) {
+        if (style != BouncyText.STYLE_FLIP && style != BouncyText.STYLE_FADE
+                && style != BouncyText.STYLE_FADE_SCALE && style != BouncyText.STYLE_ROLL) {
+            throw new IllegalArgumentException("Unsupported style given.");
+        }
+
+        mTransitionStyle = style;
+        mEngine.setFade(style == BouncyText.STYLE_FADE || style == BouncyText.STYLE_FADE_SCALE);
+        mRenderer.setFadeScale(style == BouncyText.STYLE_FADE_SCALE);
+        mEngine.setRolling(style == BouncyText.STYLE_ROLL);
+    }
+
+    int getTransitionStyle() {
+        return mTransitionStyle;
+    }
+
+    /**
+     * Returns how far characters entering and leaving travel, one line in the animation
+     * direction if they slide.
+     *
+     * @param fm the font metrics of the text paint
+     */
+    float getTravel(Paint.FontMetrics fm) {
+        return mTransitionStyle == BouncyText.STYLE_FLIP
+                || mTransitionStyle == BouncyText.STYLE_ROLL
+                ? (fm.bottom - fm.top) * mAnimationDirection : 0;
+    }
+
+    /**
+     * See {@link BouncyText#setReservedSlots(int)}.
+     *
+     * @throws IllegalArgumentException if the count is negative
+     */
+    void setReservedSlots(int slots) {
+        if (slots < 0) {
+            throw new IllegalArgumentException("The count of slots must not be negative.");
+        }
+
+        mReservedSlots = slots;
+    }
+
+    int getReservedSlots() {
+        return mReservedSlots;
+    }
+
+    /**
+     * Returns the width of the displayed text, widened to the reserved slots if any.
+     */
+    float getLayoutWidth() {
+        float width = mEngine.getGlyphs().totalWidth();
+        if (mReservedSlots > 0) {
+            final AdvanceCache cache = ensureAdvanceCache();
+            float digitWidth = 0;
+            for (char ch = '0'; ch <= '9'; ch++) {
+                digitWidth = Math.max(digitWidth, cache.getAdvance(ch));
+            }
+            width = Math.max(width, digitWidth * mReservedSlots);
+        }
+        return width;
+    }
+
+    /**
+     * Returns how long to wait for the next frame of a running transition, or 0 if it is due on
+     * the next animation frame.
+     *
+     * @param nextChangeTime the earliest time a glyph changes, see
+     *                       {@link TransitionEngine#getNextChangeTime()}
+     * @param frameTime the time of the current frame
+     */
+    static long getIdleTime(long nextChangeTime, long frameTime) {
+        // Nothing changes while every running glyph waits for its delay, sleep till then.
+        final long idleTime = nextChangeTime - frameTime;
+        return idleTime > IDLE_FRAME_THRESHOLD ? idleTime : 0;
+    }
+
+}
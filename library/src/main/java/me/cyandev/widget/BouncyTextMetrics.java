@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2017 Cyandev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.cyandev.widget;
+
+/**
+ * A snapshot of the cumulative costs of a {@link BouncyText}, taken by
+ * {@link BouncyText#getMetrics(BouncyTextMetrics)} once metrics are enabled with
+ * {@link BouncyText#setMetricsEnabled(boolean)}.
+ *
+ * <p>The counters are plain primitives updated on the main thread while drawing and changing
+ * text, so keeping them enabled costs a few increments and two clock reads per frame. A snapshot
+ * can be reused to avoid allocation.</p>
+ */
+public final class BouncyTextMetrics {
+
+    long transitionCount;
+    long keptGlyphCount;
+    long movedGlyphCount;
+    long insertedGlyphCount;
+    long removedGlyphCount;
+    long storeGrowthCount;
+    long advanceCacheHitCount;
+    long advanceCacheMissCount;
+
+    long frameCount;
+    long unchangedFrameCount;
+    long lateFrameCount;
+    long drawnGlyphCount;
+    long drawTimeNanos;
+    long maxDrawTimeNanos;
+
+    /**
+     * Returns the count of text changes, animated or not.
+     */
+    public long getTransitionCount() {
+        return transitionCount;
+    }
+
+    /**
+     * Returns the count of glyphs that stayed in place across text changes.
+     */
+    public long getKeptGlyphCount() {
+        return keptGlyphCount;
+    }
+
+    /**
+     * Returns the count of glyphs that were kept but slid to a new position.
+     */
+    public long getMovedGlyphCount() {
+        return movedGlyphCount;
+    }
+
+    /**
+     * Returns the count of glyphs that flew in.
+     */
+    public long getInsertedGlyphCount() {
+        return insertedGlyphCount;
+    }
+
+    /**
+     * Returns the count of glyphs that flew out.
+     */
+    public long getRemovedGlyphCount() {
+        return removedGlyphCount;
+    }
+
+    /**
+     * Returns the count of animations started, which all run on primitive timelines: no
+     * animation object is created for them.
+     */
+    public long getStartedAnimationCount() {
+        return movedGlyphCount + insertedGlyphCount + removedGlyphCount;
+    }
+
+    /**
+     * Returns how many times the glyph storage had to grow, the only allocation made by text
+     * changes once warmed up.
+     */
+    public long getStoreGrowthCount() {
+        return storeGrowthCount;
+    }
+
+    /**
+     * Returns the count of character advances served without measuring.
+     */
+    public long getAdvanceCacheHitCount() {
+        return advanceCacheHitCount;
+    }
+
+    /**
+     * Returns the count of character advances that had to be measured.
+     */
+    public long getAdvanceCacheMissCount() {
+        return advanceCacheMissCount;
+    }
+
+    /**
+     * Returns the count of frames drawn.
+     */
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * Returns the count of animation frames in which no glyph moved. Frames of views in a
+     * {@link BouncyTextGroup} or with a frozen clock are not counted, they do not advance the
+     * transitions themselves.
+     */
+    public long getUnchangedFrameCount() {
+        return unchangedFrameCount;
+    }
+
+    /**
+     * Returns the count of animation frames drawn more than one and a half frame budget after
+     * the previous one, the budget following the refresh rate of the display.
+     */
+    public long getLateFrameCount() {
+        return lateFrameCount;
+    }
+
+    /**
+     * Returns the count of glyphs drawn live, glyphs culled by the clip and glyphs
+     * replayed from the cached picture of the ones at rest excluded.
+     */
+    public long getDrawnGlyphCount() {
+        return drawnGlyphCount;
+    }
+
+    /**
+     * Returns the total time spent in drawing, in nanoseconds.
+     */
+    public long getDrawTimeNanos() {
+        return drawTimeNanos;
+    }
+
+    /**
+     * Returns the longest time spent in drawing a single frame, in nanoseconds.
+     */
+    public long getMaxDrawTimeNanos() {
+        return maxDrawTimeNanos;
+    }
+
+    void set(BouncyTextMetrics other) {
+        transitionCount = other.transitionCount;
+        keptGlyphCount = other.keptGlyphCount;
+        movedGlyphCount = other.movedGlyphCount;
+        insertedGlyphCount = other.insertedGlyphCount;
+        removedGlyphCount = other.removedGlyphCount;
+        storeGrowthCount = other.storeGrowthCount;
+        advanceCacheHitCount = other.advanceCacheHitCount;
+        advanceCacheMissCount = other.advanceCacheMissCount;
+        frameCount = other.frameCount;
+        unchangedFrameCount = other.unchangedFrameCount;
+        lateFrameCount = other.lateFrameCount;
+        drawnGlyphCount = other.drawnGlyphCount;
+        drawTimeNanos = other.drawTimeNanos;
+        maxDrawTimeNanos = other.maxDrawTimeNanos;
+    }
+
+    void reset() {
+        set(new BouncyTextMetrics());
+    }
+
+}
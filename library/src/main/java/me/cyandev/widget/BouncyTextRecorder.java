@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2017 Cyandev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.cyandev.widget;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.support.v4.view.ViewCompat;
+import android.view.View;
+
+/**
+ * Renders the frames of a {@link BouncyText} transition at exact times into a bitmap, for
+ * exporting transitions or testing frames. The clock of the view is frozen while rendering, see
+ * {@link BouncyText#seekTransition(long)}.
+ *
+ * <p>The bitmap and its canvas are reused for every frame, rendering allocates nothing once the
+ * first frame is drawn. A view that is not attached to a window is laid out to fill the bitmap,
+ * so recording works headlessly.</p>
+ */
+public final class BouncyTextRecorder {
+
+    /**
+     * Receives the frames rendered by
+     * {@link BouncyTextRecorder#renderFrames(long, int, Callback)}.
+     */
+    public interface Callback {
+        /**
+         * Called once a frame is rendered, the bitmap is overwritten by the next frame.
+         *
+         * @param index the index of the frame
+         * @param time the time of the frame in milliseconds since the last text change
+         * @param bitmap the frame
+         * @return false to stop rendering
+         */
+        boolean onFrame(int index, long time, Bitmap bitmap);
+    }
+
+    private final BouncyText mView;
+    private final Bitmap mBitmap;
+    private final Canvas mCanvas;
+
+    /**
+     * @param view the view to render
+     * @param bitmap the bitmap to render into
+     */
+    public BouncyTextRecorder(BouncyText view, Bitmap bitmap) {
+        mView = view;
+        mBitmap = bitmap;
+        mCanvas = new Canvas(bitmap);
+    }
+
+    /**
+     * Renders the view as it is at given time of its last text change.
+     *
+     * @param time the time in milliseconds since the last text change
+     * @return the bitmap rendered into
+     */
+    public Bitmap renderFrame(long time) {
+        final BouncyText view = mView;
+        if (!ViewCompat.isAttachedToWindow(view) && view.isLayoutRequested()) {
+            final int width = mBitmap.getWidth();
+            final int height = mBitmap.getHeight();
+            view.measure(View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY),
+                    View.MeasureSpec.makeMeasureSpec(height, View.MeasureSpec.EXACTLY));
+            view.layout(0, 0, width, height);
+        }
+
+        view.seekTransition(time);
+        mBitmap.eraseColor(Color.TRANSPARENT);
+        view.draw(mCanvas);
+        return mBitmap;
+    }
+
+    /**
+     * Renders frames at regular times from the start of the last text change, stopping once
+     * the transition has settled.
+     *
+     * @param frameInterval the time between two frames in milliseconds
+     * @param maxFrameCount the maximum count of frames to render
+     * @param callback receives every frame
+     * @return the count of frames rendered
+     */
+    public int renderFrames(long frameInterval, int maxFrameCount, Callback callback) {
+        for (int i = 0; i < maxFrameCount; i++) {
+            final long time = i * frameInterval;
+            renderFrame(time);
+            if (!callback.onFrame(i, time, mBitmap) || !mView.isAnimating()) {
+                return i + 1;
+            }
+        }
+        return maxFrameCount;
+    }
+
+    /**
+     * Returns the bitmap frames are rendered into.
+     */
+    public Bitmap getBitmap() {
+        return mBitmap;
+    }
+
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2017 Cyandev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.cyandev.widget;
+
+import android.graphics.Paint;
+
+import java.util.HashMap;
+
+import me.cyandev.widget.core.TransitionResources;
+
+/**
+ * Resources shared by the {@link BouncyText}s joining it with
+ * {@link BouncyText#setResourceScope(BouncyTextScope)} and the {@link BouncyTextDrawable}s
+ * created with it, typically all the ones of a screen showing many of them in a list.
+ *
+ * <p>A scope holds the character advances and font metrics measured for every paint
+ * configuration in use, a pool of glyph storage that detached views hand back and the buffers
+ * used while diffing texts. Binding a recycled view to a text made of already seen characters
+ * then costs no measurement and no allocation.</p>
+ *
+ * <p>A scope is not thread-safe, it must only be used on the main thread. It keeps the measured
+ * configurations until {@link #clear()} is called or the scope is no longer referenced.</p>
+ */
+public final class BouncyTextScope {
+
+    private static final int DEFAULT_MAX_POOLED_VIEWS = 32;
+
+    private final TransitionResources mTransitionResources;
+
+    private final HashMap<PrecomputedBouncyText.Params, AdvanceCache> mAdvanceCaches =
+            new HashMap<>();
+
+    public BouncyTextScope() {
+        this(DEFAULT_MAX_POOLED_VIEWS);
+    }
+
+    /**
+     * @param maxPooledViews the count of detached views whose glyph storage is kept for reuse
+     */
+    public BouncyTextScope(int maxPooledViews) {
+        if (maxPooledViews < 0) {
+            throw new IllegalArgumentException("The pool size must not be negative.");
+        }
+
+        // Every engine holds three glyph stores.
+        mTransitionResources = new TransitionResources(maxPooledViews * 3);
+    }
+
+    /**
+     * Drops the measured configurations. Views keep the ones they are using.
+     */
+    public void clear() {
+        mAdvanceCaches.clear();
+    }
+
+    TransitionResources getTransitionResources() {
+        return mTransitionResources;
+    }
+
+    /**
+     * Returns the shared cache for the metrics configuration of given paint. This is only looked
+     * up when the configuration of a view changes.
+     */
+    AdvanceCache obtainAdvanceCache(Paint paint) {
+        final PrecomputedBouncyText.Params params = new PrecomputedBouncyText.Params(paint);
+        AdvanceCache cache = mAdvanceCaches.get(params);
+        if (cache == null) {
+            // Measure with a private copy, so the cache never has to be invalidated.
+            cache = new AdvanceCache(new Paint(paint));
+            cache.validate();
+            mAdvanceCaches.put(cache.getParams(), cache);
+        }
+        return cache;
+    }
+
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2017 Cyandev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.cyandev.widget;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.drawable.Drawable;
+import android.os.SystemClock;
+import android.text.style.ReplacementSpan;
+import android.view.View;
+
+/**
+ * A span replacing its text with a {@link BouncyTextDrawable}, so that an animated value flows
+ * inside the text of a {@code TextView} without any view of its own. The drawable is drawn on
+ * the baseline of the line, its frames invalidate the host view.
+ *
+ * <p>The width of the span is measured when the host lays its text out. Reserve the width of
+ * the values with {@link BouncyTextDrawable#setReservedSlots(int)}, or set the text of the host
+ * again when the width of the value changes.</p>
+ */
+public class BouncyTextSpan extends ReplacementSpan implements Drawable.Callback {
+
+    private final BouncyTextDrawable mDrawable;
+    private final View mHost;
+
+    /**
+     * @param drawable the drawable to display, its callback is taken by this span
+     * @param host the view displaying the text holding this span
+     */
+    public BouncyTextSpan(BouncyTextDrawable drawable, View host) {
+        mDrawable = drawable;
+        mHost = host;
+        drawable.setCallback(this);
+    }
+
+    /**
+     * Returns the drawable displayed, set its values to animate the span.
+     */
+    public BouncyTextDrawable getDrawable() {
+        return mDrawable;
+    }
+
+    @Override
+    public int getSize(Paint paint, CharSequence text, int start, int end,
+                       Paint.FontMetricsInt fm) {
+        if (fm != null) {
+            mDrawable.getFontMetricsInt(fm);
+        }
+        return mDrawable.getIntrinsicWidth();
+    }
+
+    @Override
+    public void draw(Canvas canvas, CharSequence text, int start, int end, float x, int top, int y,
+                     int bottom, Paint paint) {
+        mDrawable.draw(canvas, x, y);
+    }
+
+    @Override
+    public void invalidateDrawable(Drawable who) {
+        mHost.invalidate();
+    }
+
+    @Override
+    public void scheduleDrawable(Drawable who, Runnable what, long when) {
+        mHost.postDelayed(what, when - SystemClock.uptimeMillis());
+    }
+
+    @Override
+    public void unscheduleDrawable(Drawable who, Runnable what) {
+        mHost.removeCallbacks(what);
+    }
+
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2017 Cyandev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.cyandev.widget;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+import java.util.HashMap;
+
+/**
+ * A bitmap holding the digits 0 to 9 stacked in a column, followed by 0 again, for one paint
+ * configuration. A rolling digit is drawn as one clipped blit of the strip, at any position
+ * between two digits, whatever the count of digits it rolls through.
+ *
+ * Strips are shared by all views using the same configuration, every {@link #obtain(Paint)}
+ * must be balanced by a {@link #release()}. They should only be used on the main thread.
+ */
+final class DigitStrip {
+
+    private static final int PADDING = 2;
+    private static final String DIGITS = "01234567890";
+
+    private static final HashMap<GlyphAtlas.Key, DigitStrip> sStrips = new HashMap<>();
+
+    private final GlyphAtlas.Key mKey;
+    private int mRefCount = 0;
+
+    private final Bitmap mBitmap;
+
+    private final int mCellWidth;
+    private final int mCellHeight;
+    /** The distance from the top of a cell to the baseline of its digit. */
+    private final float mBaseline;
+
+    private final Rect mSrcRect = new Rect();
+    private final RectF mDstRect = new RectF();
+
+    /**
+     * Returns a shared strip for the current state of given paint, rasterizing it if needed.
+     */
+    static DigitStrip obtain(Paint paint) {
+        final GlyphAtlas.Key key = new GlyphAtlas.Key(paint, DIGITS);
+        DigitStrip strip = sStrips.get(key);
+        if (strip == null) {
+            strip = new DigitStrip(key, paint);
+            sStrips.put(key, strip);
+        }
+        strip.mRefCount++;
+        return strip;
+    }
+
+    private DigitStrip(GlyphAtlas.Key key, Paint paint) {
+        mKey = key;
+
+        final char[] digits = DIGITS.toCharArray();
+        float maxAdvance = 0;
+        for (int i = 0; i < 10; i++) {
+            maxAdvance = Math.max(maxAdvance, paint.measureText(digits, i, 1));
+        }
+
+        final Paint.FontMetrics fm = new Paint.FontMetrics();
+        paint.getFontMetrics(fm);
+        // Cells are contiguous, so that a position between two digits shows parts of both.
+        mCellWidth = (int) Math.ceil(maxAdvance) + PADDING * 2;
+        mCellHeight = (int) Math.ceil(fm.bottom - fm.top);
+        mBaseline = -fm.top;
+
+        // One more row, a position is drawn from the pixel row above it.
+        mBitmap = Bitmap.createBitmap(mCellWidth, digits.length * mCellHeight + 1,
+                Bitmap.Config.ARGB_8888);
+        final Canvas canvas = new Canvas(mBitmap);
+        for (int i = 0; i < digits.length; i++) {
+            canvas.drawText(digits, i, 1, PADDING, i * mCellHeight + mBaseline, paint);
+        }
+    }
+
+    /**
+     * Returns the count of strips in use, each one obtained and not released yet.
+     */
+    static int getCount() {
+        return sStrips.size();
+    }
+
+    /**
+     * Gives up a reference obtained by {@link #obtain(Paint)}, the bitmap is recycled once no
+     * view uses the strip.
+     */
+    void release() {
+        if (--mRefCount == 0) {
+            sStrips.remove(mKey);
+            mBitmap.recycle();
+        }
+    }
+
+    /**
+     * Draws the strip at given position clipped to one cell, with the baseline origin of the
+     * cell at (x, y).
+     *
+     * @param position the digit shown, fractional in between two digits, in [0, 10)
+     */
+    void draw(Canvas canvas, float position, float x, float y, Paint paint) {
+        final float offset = position * mCellHeight;
+        final int srcTop = (int) offset;
+        mSrcRect.set(0, srcTop, mCellWidth, srcTop + mCellHeight + 1);
+
+        final float cellLeft = x - PADDING;
+        final float cellTop = y - mBaseline;
+        final float dstTop = cellTop - (offset - srcTop);
+        mDstRect.set(cellLeft, dstTop, cellLeft + mCellWidth, dstTop + mCellHeight + 1);
+
+        final int saveCount = canvas.save();
+        canvas.clipRect(cellLeft, cellTop, cellLeft + mCellWidth, cellTop + mCellHeight);
+        canvas.drawBitmap(mBitmap, mSrcRect, mDstRect, paint);
+        canvas.restoreToCount(saveCount);
+    }
+
+}
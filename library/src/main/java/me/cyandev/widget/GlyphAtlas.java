@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2017 Cyandev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.cyandev.widget;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.ColorFilter;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * A bitmap holding the pre-rasterized glyphs of an alphabet for one paint configuration, so
+ * that drawing a glyph is a bitmap blit instead of a text draw.
+ *
+ * Atlases are shared by all views using the same configuration and alphabet, every
+ * {@link #obtain(Paint, CharSequence)} must be balanced by a {@link #release()}. They should only
+ * be used on the main thread.
+ */
+final class GlyphAtlas {
+
+    private static final int PADDING = 2;
+    private static final int MAX_WIDTH = 2048;
+
+    private static final HashMap<Key, GlyphAtlas> sAtlases = new HashMap<>();
+
+    private final Key mKey;
+    private int mRefCount = 0;
+
+    private final Bitmap mBitmap;
+    private final char[] mAlphabet;
+    /** Cell indices of ASCII chars, -1 if absent from the alphabet. */
+    private final short[] mAsciiCells = new short[128];
+
+    private final int mCellWidth;
+    private final int mCellHeight;
+    private final int mColumns;
+    /** The distance from the top of a cell to the baseline of its glyph. */
+    private final float mBaseline;
+
+    private final Rect mSrcRect = new Rect();
+    private final RectF mDstRect = new RectF();
+
+    /**
+     * Returns a shared atlas for the current state of given paint, rasterizing it if needed.
+     */
+    static GlyphAtlas obtain(Paint paint, CharSequence alphabet) {
+        final Key key = new Key(paint, alphabet.toString());
+        GlyphAtlas atlas = sAtlases.get(key);
+        if (atlas == null) {
+            atlas = new GlyphAtlas(key, paint);
+            sAtlases.put(key, atlas);
+        }
+        atlas.mRefCount++;
+        return atlas;
+    }
+
+    private GlyphAtlas(Key key, Paint paint) {
+        mKey = key;
+
+        final String alphabet = key.alphabet;
+        final char[] chars = new char[alphabet.length()];
+        int count = 0;
+        for (int i = 0; i < alphabet.length(); i++) {
+            final char ch = alphabet.charAt(i);
+            if (indexOf(chars, count, ch) < 0) {
+                chars[count++] = ch;
+            }
+        }
+        mAlphabet = Arrays.copyOf(chars, count);
+
+        Arrays.fill(mAsciiCells, (short) -1);
+        float maxAdvance = 0;
+        for (int i = 0; i < count; i++) {
+            if (mAlphabet[i] < mAsciiCells.length) {
+                mAsciiCells[mAlphabet[i]] = (short) i;
+            }
+            maxAdvance = Math.max(maxAdvance, paint.measureText(mAlphabet, i, 1));
+        }
+
+        final Paint.FontMetrics fm = new Paint.FontMetrics();
+        paint.getFontMetrics(fm);
+        mCellWidth = (int) Math.ceil(maxAdvance) + PADDING * 2;
+        mCellHeight = (int) Math.ceil(fm.bottom - fm.top) + PADDING * 2;
+        mBaseline = PADDING - fm.top;
+        mColumns = Math.max(1, Math.min(count, MAX_WIDTH / mCellWidth));
+        final int rows = Math.max(1, (count + mColumns - 1) / mColumns);
+
+        mBitmap = Bitmap.createBitmap(mColumns * mCellWidth, rows * mCellHeight,
+                Bitmap.Config.ARGB_8888);
+        final Canvas canvas = new Canvas(mBitmap);
+        for (int i = 0; i < count; i++) {
+            canvas.drawText(mAlphabet, i, 1, (i % mColumns) * mCellWidth + PADDING,
+                    (i / mColumns) * mCellHeight + mBaseline, paint);
+        }
+    }
+
+    /**
+     * Gives up a reference obtained by {@link #obtain(Paint, CharSequence)}, the bitmap is
+     * recycled once no view uses the atlas.
+     */
+    void release() {
+        if (--mRefCount == 0) {
+            sAtlases.remove(mKey);
+            mBitmap.recycle();
+        }
+    }
+
+    /**
+     * Returns the cell of given char, or -1 if it is not in the alphabet.
+     */
+    int indexOf(char ch) {
+        if (ch < mAsciiCells.length) {
+            return mAsciiCells[ch];
+        }
+        return indexOf(mAlphabet, mAlphabet.length, ch);
+    }
+
+    private static int indexOf(char[] chars, int count, char ch) {
+        for (int i = 0; i < count; i++) {
+            if (chars[i] == ch) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Draws the glyph of given cell with its baseline origin at (x, y).
+     */
+    void draw(Canvas canvas, int cell, float x, float y, Paint paint) {
+        final int left = (cell % mColumns) * mCellWidth;
+        final int top = (cell / mColumns) * mCellHeight;
+        mSrcRect.set(left, top, left + mCellWidth, top + mCellHeight);
+
+        final float dstLeft = x - PADDING;
+        final float dstTop = y - mBaseline;
+        mDstRect.set(dstLeft, dstTop, dstLeft + mCellWidth, dstTop + mCellHeight);
+
+        canvas.drawBitmap(mBitmap, mSrcRect, mDstRect, paint);
+    }
+
+    /**
+     * The paint state affecting the rasterized glyphs: the metrics state, the color and the
+     * color filter, plus the alphabet.
+     */
+    static final class Key {
+        final PrecomputedBouncyText.Params params;
+        final int color;
+        final ColorFilter colorFilter;
+        final String alphabet;
+
+        Key(Paint paint, String alphabet) {
+            this.params = new PrecomputedBouncyText.Params(paint);
+            this.color = paint.getColor();
+            this.colorFilter = paint.getColorFilter();
+            this.alphabet = alphabet;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            final Key key = (Key) o;
+            return params.equals(key.params)
+                    && color == key.color
+                    && colorFilter == key.colorFilter
+                    && alphabet.equals(key.alphabet);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = params.hashCode();
+            result = 31 * result + color;
+            result = 31 * result + (colorFilter != null ? colorFilter.hashCode() : 0);
+            result = 31 * result + alphabet.hashCode();
+            return result;
+        }
+    }
+
+}
@@ -0,0 +1,294 @@
+/*
+ * Copyright (C) 2017 Cyandev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.cyandev.widget;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+
+import me.cyandev.widget.core.GlyphStore;
+
+/**
+ * Draws the glyphs of a {@link me.cyandev.widget.core.TransitionEngine} with a text paint, from
+ * the glyph atlas and the digit strip where they apply. This is all the drawing a host does on
+ * top of the engine, shared by {@link BouncyText} and {@link BouncyTextDrawable}.
+ */
+final class GlyphRenderer {
+
+    static final String DEFAULT_GLYPH_ATLAS_ALPHABET = "0123456789.,-+%";
+
+    /** The scale of characters fully faded out in {@link BouncyText#STYLE_FADE_SCALE}. */
+    private static final float FADE_MIN_SCALE = 0.5f;
+
+    private final Paint mTextPaint;
+    private final Paint mBitmapPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    /** A char array with capacity of one char, avoiding frequent allocation.
+     * This is frequently used in Canvas drawing operation. */
+    private final char[] mSingleCharArray = new char[1];
+
+    /** The store the runs are prepared for, see {@link #prepareRuns(GlyphStore, AdvanceCache)}. */
+    private GlyphStore mRunGlyphs;
+    /** Whether each glyph of {@link #mRunGlyphs} may continue a run from the one before it. */
+    private boolean[] mJoinsRun = new boolean[0];
+
+    private boolean mFadeScale = false;
+
+    private boolean mGlyphAtlasEnabled = false;
+    private CharSequence mGlyphAtlasAlphabet = DEFAULT_GLYPH_ATLAS_ALPHABET;
+    /** The shared atlas in use, obtained lazily when drawing. */
+    private GlyphAtlas mGlyphAtlas;
+    /** The shared strip rolling digits are drawn from, obtained lazily when drawing one. */
+    private DigitStrip mDigitStrip;
+
+    /**
+     * @param textPaint the paint to draw with, the bitmaps are rasterized with it as well
+     */
+    GlyphRenderer(Paint textPaint) {
+        mTextPaint = textPaint;
+    }
+
+    /**
+     * Sets whether fading glyphs grow and shrink as well.
+     */
+    void setFadeScale(boolean fadeScale) {
+        mFadeScale = fadeScale;
+    }
+
+    /**
+     * Sets whether to draw characters from a shared glyph atlas, see {@link GlyphAtlas}.
+     */
+    void setGlyphAtlasEnabled(boolean enabled) {
+        mGlyphAtlasEnabled = enabled;
+        releaseBitmaps();
+    }
+
+    boolean isGlyphAtlasEnabled() {
+        return mGlyphAtlasEnabled;
+    }
+
+    void setGlyphAtlasAlphabet(CharSequence alphabet) {
+        mGlyphAtlasAlphabet = alphabet == null ? DEFAULT_GLYPH_ATLAS_ALPHABET : alphabet;
+        releaseBitmaps();
+    }
+
+    CharSequence getGlyphAtlasAlphabet() {
+        return mGlyphAtlasAlphabet;
+    }
+
+    /**
+     * Returns the horizontal room taken around glyph advances for overhanging glyph shapes.
+     */
+    float getGlyphSlop() {
+        return mTextPaint.getTextSize() / 8;
+    }
+
+    /**
+     * Decides which adjacent glyphs of given store may be drawn in one text run, to be called
+     * once the store is laid out or measured again. Glyphs are laid out from the advances of
+     * single characters, a pair kerned or ligated by shaping would not match them and is never
+     * drawn in one run. Glyphs of any other store are drawn one by one.
+     */
+    void prepareRuns(GlyphStore glyphs, AdvanceCache cache) {
+        final int size = glyphs.size;
+        if (mJoinsRun.length < size) {
+            mJoinsRun = new boolean[Math.max(size, mJoinsRun.length * 2)];
+        }
+
+        final char[] chars = glyphs.ch;
+        for (int i = 1; i < size; i++) {
+            mJoinsRun[i] = cache.isPairApart(chars[i - 1], chars[i]);
+        }
+        mRunGlyphs = glyphs;
+    }
+
+    /**
+     * Draws the glyphs not culled by given clip. Adjacent opaque glyphs at rest and not in the
+     * atlas are drawn as a single text run, straight from the char column of the store, where
+     * {@link #prepareRuns(GlyphStore, AdvanceCache)} found that shaping keeps their positions.
+     *
+     * @param fm the font metrics of the text paint
+     * @param clip the clip in glyph coordinates, or null to draw regardless
+     * @param live tells which glyphs were moving when the static picture was recorded, or null
+     *             to draw all glyphs
+     * @param drawLive whether to draw the glyphs marked live or the other ones
+     * @return the count of glyphs drawn
+     */
+    int drawGlyphs(Canvas canvas, GlyphStore glyphs, Paint.FontMetrics fm, Rect clip,
+                   boolean[] live, boolean drawLive) {
+        final char[] chars = glyphs.ch;
+        final float[] xs = glyphs.x;
+        final float[] ys = glyphs.y;
+        final float[] ws = glyphs.w;
+        final float[] toYs = glyphs.toY;
+        final float[] as = glyphs.a;
+        final boolean[] animating = glyphs.animating;
+        final boolean[] rolling = glyphs.rolling;
+        final boolean[] joinsRun = glyphs == mRunGlyphs && glyphs.size <= mJoinsRun.length
+                ? mJoinsRun : null;
+        final GlyphAtlas atlas = ensureGlyphAtlas();
+        float clipLeft = -Float.MAX_VALUE;
+        float clipRight = Float.MAX_VALUE;
+        float clipTop = -Float.MAX_VALUE;
+        float clipBottom = Float.MAX_VALUE;
+        if (clip != null) {
+            final float slop = getGlyphSlop();
+            clipLeft = clip.left - slop;
+            clipRight = clip.right + slop;
+            clipTop = clip.top - fm.bottom;
+            clipBottom = clip.bottom - fm.top;
+        }
+
+        int drawnCount = 0;
+        int runStart = -1;
+        float runEnd = 0;
+        int i = 0;
+        for (final int s = glyphs.size; i < s; i++) {
+            // A rolling digit is drawn in its cell.
+            final float y = rolling[i] && animating[i] ? toYs[i] : ys[i];
+            if ((live != null && live[i] != drawLive) || as[i] <= 0
+                    || xs[i] + ws[i] < clipLeft || xs[i] > clipRight
+                    || y < clipTop || y > clipBottom) {
+                if (runStart >= 0) {
+                    drawRun(canvas, glyphs, runStart, i);
+                    runStart = -1;
+                }
+                continue;
+            }
+            drawnCount++;
+
+            if (!animating[i] && as[i] == 1 && (atlas == null || atlas.indexOf(chars[i]) < 0)) {
+                if (runStart >= 0 && joinsRun != null && joinsRun[i]
+                        && xs[i] == runEnd && ys[i] == ys[runStart]) {
+                    runEnd += ws[i];
+                    continue;
+                }
+                if (runStart >= 0) {
+                    drawRun(canvas, glyphs, runStart, i);
+                }
+                runStart = i;
+                runEnd = xs[i] + ws[i];
+                continue;
+            }
+
+            if (runStart >= 0) {
+                drawRun(canvas, glyphs, runStart, i);
+                runStart = -1;
+            }
+            drawGlyph(canvas, atlas, glyphs, i, fm);
+        }
+        if (runStart >= 0) {
+            drawRun(canvas, glyphs, runStart, i);
+        }
+        return drawnCount;
+    }
+
+    /**
+     * Draws the glyphs from start (inclusive) to end (exclusive) as one text run.
+     */
+    private void drawRun(Canvas canvas, GlyphStore glyphs, int start, int end) {
+        canvas.drawText(glyphs.ch, start, end - start, glyphs.x[start], glyphs.y[start],
+                mTextPaint);
+    }
+
+    /**
+     * Draws a single glyph, a rolling digit from the digit strip. A fading glyph is drawn with
+     * the alpha of the paint modulated, and scaled around its center in
+     * {@link BouncyText#STYLE_FADE_SCALE}, never through a layer.
+     */
+    private void drawGlyph(Canvas canvas, GlyphAtlas atlas, GlyphStore glyphs, int index,
+                           Paint.FontMetrics fm) {
+        final char ch = glyphs.ch[index];
+        final float x = glyphs.x[index];
+        final float y = glyphs.y[index];
+        final float alpha = glyphs.a[index];
+        if (alpha <= 0) {
+            return;
+        }
+
+        // A rolling digit is one blit of the strip, however far it rolls.
+        if (glyphs.rolling[index] && glyphs.animating[index]) {
+            final float height = fm.bottom - fm.top;
+            ensureDigitStrip().draw(canvas, glyphs.rollPosition(index, height), x,
+                    glyphs.toY[index], mBitmapPaint);
+            return;
+        }
+
+        int saveCount = -1;
+        if (alpha < 1 && mFadeScale) {
+            final float scale = FADE_MIN_SCALE + (1 - FADE_MIN_SCALE) * alpha;
+            saveCount = canvas.save();
+            canvas.scale(scale, scale, x + glyphs.w[index] / 2,
+                    y + (fm.ascent + fm.descent) / 2);
+        }
+
+        final int cell = atlas != null ? atlas.indexOf(ch) : -1;
+        final Paint paint = cell >= 0 ? mBitmapPaint : mTextPaint;
+        final int paintAlpha = paint.getAlpha();
+        if (alpha < 1) {
+            paint.setAlpha((int) (paintAlpha * alpha));
+        }
+
+        if (cell >= 0) {
+            atlas.draw(canvas, cell, x, y, paint);
+        } else {
+            mSingleCharArray[0] = ch;
+            canvas.drawText(mSingleCharArray, 0, 1, x, y, paint);
+        }
+
+        if (alpha < 1) {
+            paint.setAlpha(paintAlpha);
+        }
+        if (saveCount >= 0) {
+            canvas.restoreToCount(saveCount);
+        }
+    }
+
+    /**
+     * Returns the glyph atlas for current paint configuration, or null if it is disabled.
+     */
+    private GlyphAtlas ensureGlyphAtlas() {
+        if (mGlyphAtlasEnabled && mGlyphAtlas == null) {
+            mGlyphAtlas = GlyphAtlas.obtain(mTextPaint, mGlyphAtlasAlphabet);
+        }
+        return mGlyphAtlas;
+    }
+
+    /**
+     * Returns the digit strip for current paint configuration.
+     */
+    private DigitStrip ensureDigitStrip() {
+        if (mDigitStrip == null) {
+            mDigitStrip = DigitStrip.obtain(mTextPaint);
+        }
+        return mDigitStrip;
+    }
+
+    /**
+     * Gives up the glyph atlas and the digit strip, rasterized with the paint of the moment.
+     */
+    void releaseBitmaps() {
+        if (mGlyphAtlas != null) {
+            mGlyphAtlas.release();
+            mGlyphAtlas = null;
+        }
+        if (mDigitStrip != null) {
+            mDigitStrip.release();
+            mDigitStrip = null;
+        }
+    }
+
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2017 Cyandev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.cyandev.widget;
+
+/**
+ * A reusable char sequence that numbers are formatted into without any intermediate string.
+ */
+final class NumeralBuffer implements CharSequence {
+
+    /** Enough for a signed long with grouping separators, a decimal separator and fractions. */
+    private static final int CAPACITY = 64;
+
+    private static final long[] POWERS_OF_TEN = new long[19];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    /** The max precision accepted by {@link #setDouble}. */
+    static final int MAX_PRECISION = POWERS_OF_TEN.length - 1;
+
+    final char[] chars = new char[CAPACITY];
+    int length = 0;
+
+    /**
+     * Formats given integer.
+     *
+     * @param groupingSeparator the separator inserted every three integer digits, or 0 for none
+     * @param showPositiveSign whether to prefix positive values with a plus sign
+     */
+    void setLong(long value, char groupingSeparator, boolean showPositiveSign) {
+        int start = CAPACITY;
+        // Accumulate on the negative side, which also covers Long.MIN_VALUE.
+        final long negative = value < 0 ? value : -value;
+        start = writeInteger(negative, groupingSeparator, start);
+        start = writeSign(value < 0, value > 0 && showPositiveSign, start);
+        moveToFront(start);
+    }
+
+    /**
+     * Formats given number with a fixed count of fraction digits, rounding half up.
+     *
+     * @param precision the count of fraction digits, from 0 to {@link #MAX_PRECISION}
+     * @param groupingSeparator the separator inserted every three integer digits, or 0 for none
+     * @param decimalSeparator the separator between integer and fraction digits
+     * @param showPositiveSign whether to prefix positive values with a plus sign
+     */
+    void setDouble(double value, int precision, char groupingSeparator, char decimalSeparator,
+                   boolean showPositiveSign) {
+        setScaled(scale(value, precision), precision, groupingSeparator, decimalSeparator,
+                showPositiveSign);
+    }
+
+    /**
+     * Formats a number given as an integer count of its last fraction digit, e.g. 12345 with a
+     * precision of 2 for 123.45.
+     *
+     * @param precision the count of fraction digits, from 0 to {@link #MAX_PRECISION}
+     * @param groupingSeparator the separator inserted every three integer digits, or 0 for none
+     * @param decimalSeparator the separator between integer and fraction digits
+     * @param showPositiveSign whether to prefix positive values with a plus sign
+     */
+    void setScaled(long scaled, int precision, char groupingSeparator, char decimalSeparator,
+                   boolean showPositiveSign) {
+        checkPrecision(precision);
+
+        final long scale = POWERS_OF_TEN[precision];
+        // Accumulate on the negative side, which also covers Long.MIN_VALUE.
+        final long negative = scaled < 0 ? scaled : -scaled;
+        int start = CAPACITY;
+        if (precision > 0) {
+            long fraction = negative % scale;
+            for (int i = 0; i < precision; i++) {
+                chars[--start] = (char) ('0' - fraction % 10);
+                fraction /= 10;
+            }
+            chars[--start] = decimalSeparator;
+        }
+
+        start = writeInteger(negative / scale, groupingSeparator, start);
+        start = writeSign(scaled < 0, scaled > 0 && showPositiveSign, start);
+        moveToFront(start);
+    }
+
+    /**
+     * Rounds given number half up to a fixed count of fraction digits, as an integer count of
+     * its last fraction digit. A value rounded to zero is zero, it has no sign.
+     *
+     * @param precision the count of fraction digits, from 0 to {@link #MAX_PRECISION}
+     * @throws IllegalArgumentException if the scaled value does not fit in a long
+     */
+    static long scale(double value, int precision) {
+        checkPrecision(precision);
+
+        final double scaled = Math.abs(value) * POWERS_OF_TEN[precision];
+        if (Double.isNaN(scaled) || scaled >= Long.MAX_VALUE) {
+            throw new IllegalArgumentException("The value can not be formatted: " + value);
+        }
+
+        final long rounded = (long) (scaled + 0.5);
+        return value < 0 ? -rounded : rounded;
+    }
+
+    private static void checkPrecision(int precision) {
+        if (precision < 0 || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("The precision must be in [0, " + MAX_PRECISION
+                    + "].");
+        }
+    }
+
+    /**
+     * Writes the digits of a non-positive integer backwards, ending before given index.
+     *
+     * @return the index of the first written char
+     */
+    private int writeInteger(long negative, char groupingSeparator, int end) {
+        int start = end;
+        int digits = 0;
+        do {
+            if (digits > 0 && digits % 3 == 0 && groupingSeparator != 0) {
+                chars[--start] = groupingSeparator;
+            }
+            chars[--start] = (char) ('0' - negative % 10);
+            negative /= 10;
+            digits++;
+        } while (negative != 0);
+        return start;
+    }
+
+    private int writeSign(boolean negative, boolean positive, int end) {
+        if (negative) {
+            chars[--end] = '-';
+        } else if (positive) {
+            chars[--end] = '+';
+        }
+        return end;
+    }
+
+    private void moveToFront(int start) {
+        length = CAPACITY - start;
+        System.arraycopy(chars, start, chars, 0, length);
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("index: " + index + ", length: " + length);
+        }
+        return chars[index];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return toString().subSequence(start, end);
+    }
+
+    @Override
+    public String toString() {
+        return new String(chars, 0, length);
+    }
+
+}
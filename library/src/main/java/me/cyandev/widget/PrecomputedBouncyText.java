@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2017 Cyandev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.cyandev.widget;
+
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.os.Build;
+import android.text.TextUtils;
+
+/**
+ * A text whose character advances have been measured beforehand, possibly off the main thread,
+ * so that {@link BouncyText} displays it without any measurement.
+ *
+ * <p>Create one with {@link #create(CharSequence, Params)} from the parameters of the view it is
+ * meant for, see {@link BouncyText#getTextMetricsParams()}, then pass it to
+ * {@link BouncyText#setPrecomputedText(PrecomputedBouncyText)}. Instances are immutable and can
+ * be handed between threads.</p>
+ */
+public final class PrecomputedBouncyText implements CharSequence {
+
+    private final String mText;
+    private final Params mParams;
+    /** Advance of every character of the text. */
+    final float[] mAdvances;
+
+    private PrecomputedBouncyText(String text, Params params, float[] advances) {
+        mText = text;
+        mParams = params;
+        mAdvances = advances;
+    }
+
+    /**
+     * Measures given text with given parameters. This can be called from any thread.
+     *
+     * @param text the text
+     * @param params the parameters of the view displaying the text
+     */
+    public static PrecomputedBouncyText create(CharSequence text, Params params) {
+        if (params == null) {
+            throw new IllegalArgumentException("The params must not be null.");
+        }
+
+        final String string = text == null ? "" : text.toString();
+        final Paint paint = params.newPaint();
+        final char[] chars = string.toCharArray();
+        final float[] advances = new float[chars.length];
+        for (int i = 0; i < chars.length; i++) {
+            // Measured the way BouncyText does, one character at a time.
+            advances[i] = paint.measureText(chars, i, 1);
+        }
+
+        return new PrecomputedBouncyText(string, params, advances);
+    }
+
+    /**
+     * Returns the parameters this text was measured with.
+     */
+    public Params getParams() {
+        return mParams;
+    }
+
+    @Override
+    public int length() {
+        return mText.length();
+    }
+
+    @Override
+    public char charAt(int index) {
+        return mText.charAt(index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return mText.subSequence(start, end);
+    }
+
+    @Override
+    public String toString() {
+        return mText;
+    }
+
+    /**
+     * The paint state affecting text measurement: typeface, text size, scale, skew, font features
+     * and flags. Parameters are compared by value, they also key the measurements cached by
+     * {@link BouncyTextScope} and the bitmaps rasterized for a paint configuration.
+     */
+    public static final class Params {
+        private final Typeface mTypeface;
+        private final float mTextSize;
+        private final float mTextScaleX;
+        private final float mTextSkewX;
+        private final int mFlags;
+        private final String mFontFeatureSettings;
+
+        /**
+         * Takes a snapshot of the measurement state of given paint.
+         */
+        public Params(Paint paint) {
+            mTypeface = paint.getTypeface();
+            mTextSize = paint.getTextSize();
+            mTextScaleX = paint.getTextScaleX();
+            mTextSkewX = paint.getTextSkewX();
+            mFlags = paint.getFlags();
+            mFontFeatureSettings = fontFeatureSettingsOf(paint);
+        }
+
+        public Typeface getTypeface() {
+            return mTypeface;
+        }
+
+        public float getTextSize() {
+            return mTextSize;
+        }
+
+        public float getTextScaleX() {
+            return mTextScaleX;
+        }
+
+        public float getTextSkewX() {
+            return mTextSkewX;
+        }
+
+        public int getFlags() {
+            return mFlags;
+        }
+
+        /**
+         * Returns the font feature settings, always null before Lollipop.
+         */
+        public String getFontFeatureSettings() {
+            return mFontFeatureSettings;
+        }
+
+        /**
+         * Returns whether texts measured with these parameters fit given paint.
+         */
+        public boolean matches(Paint paint) {
+            return mTypeface == paint.getTypeface()
+                    && mTextSize == paint.getTextSize()
+                    && mTextScaleX == paint.getTextScaleX()
+                    && mTextSkewX == paint.getTextSkewX()
+                    && mFlags == paint.getFlags()
+                    && TextUtils.equals(mFontFeatureSettings, fontFeatureSettingsOf(paint));
+        }
+
+        /**
+         * Returns the font feature settings of given paint, always null before Lollipop.
+         */
+        private static String fontFeatureSettingsOf(Paint paint) {
+            return Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP
+                    ? paint.getFontFeatureSettings() : null;
+        }
+
+        Paint newPaint() {
+            final Paint paint = new Paint(mFlags);
+            paint.setTypeface(mTypeface);
+            paint.setTextSize(mTextSize);
+            paint.setTextScaleX(mTextScaleX);
+            paint.setTextSkewX(mTextSkewX);
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+                paint.setFontFeatureSettings(mFontFeatureSettings);
+            }
+            return paint;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Params)) {
+                return false;
+            }
+            final Params params = (Params) o;
+            return mTypeface == params.mTypeface
+                    && mTextSize == params.mTextSize
+                    && mTextScaleX == params.mTextScaleX
+                    && mTextSkewX == params.mTextSkewX
+                    && mFlags == params.mFlags
+                    && TextUtils.equals(mFontFeatureSettings, params.mFontFeatureSettings);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = mTypeface != null ? mTypeface.hashCode() : 0;
+            result = 31 * result + Float.floatToIntBits(mTextSize);
+            result = 31 * result + Float.floatToIntBits(mTextScaleX);
+            result = 31 * result + Float.floatToIntBits(mTextSkewX);
+            result = 31 * result + mFlags;
+            result = 31 * result
+                    + (mFontFeatureSettings != null ? mFontFeatureSettings.hashCode() : 0);
+            return result;
+        }
+    }
+
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2017 Cyandev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.cyandev.widget;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A single slot holding the latest number published by any thread until it is taken, so that
+ * values published faster than they can be displayed are coalesced. A number is packed with its
+ * precision into one long, publishing and taking are lock-free and allocate nothing.
+ */
+final class ValueMailbox {
+
+    private static final int PRECISION_BITS = 5;
+    private static final long PRECISION_MASK = (1L << PRECISION_BITS) - 1;
+
+    /** The max magnitude of a scaled value that can be packed. */
+    static final long MAX_SCALED = (1L << (Long.SIZE - PRECISION_BITS - 1)) - 1;
+
+    /** Marks an empty slot, this packs a scaled value out of range. */
+    static final long EMPTY = Long.MIN_VALUE;
+
+    private final AtomicLong mSlot = new AtomicLong(EMPTY);
+
+    /**
+     * Replaces the pending number with given one.
+     *
+     * @param scaled the number as an integer count of its last fraction digit, its magnitude up
+     *               to {@link #MAX_SCALED}
+     * @param precision the count of fraction digits, from 0 to {@link NumeralBuffer#MAX_PRECISION}
+     * @return true if the slot was empty, the publisher has then to get it taken
+     * @throws IllegalArgumentException if the number can not be packed
+     */
+    boolean publish(long scaled, int precision) {
+        if (scaled > MAX_SCALED || scaled < -MAX_SCALED) {
+            throw new IllegalArgumentException("The value is out of the range of published "
+                    + "values: " + scaled);
+        }
+        if (precision < 0 || precision > NumeralBuffer.MAX_PRECISION) {
+            throw new IllegalArgumentException("The precision must be in [0, "
+                    + NumeralBuffer.MAX_PRECISION + "].");
+        }
+
+        return mSlot.getAndSet(scaled << PRECISION_BITS | precision) == EMPTY;
+    }
+
+    /**
+     * Empties the slot.
+     *
+     * @return the packed pending number, or {@link #EMPTY}
+     */
+    long take() {
+        return mSlot.getAndSet(EMPTY);
+    }
+
+    /**
+     * Returns the scaled value of a packed number.
+     */
+    static long scaledOf(long packed) {
+        return packed >> PRECISION_BITS;
+    }
+
+    /**
+     * Returns the precision of a packed number.
+     */
+    static int precisionOf(long packed) {
+        return (int) (packed & PRECISION_MASK);
+    }
+
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2017 Cyandev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.cyandev.widget;
+
+import android.graphics.drawable.Drawable;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import me.cyandev.widget.core.TransitionResources;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+public class BouncyTextDrawableTest {
+
+    /** Held here, drawables only keep a weak reference to their callback. */
+    private final Drawable.Callback mCallback = new Drawable.Callback() {
+        @Override
+        public void invalidateDrawable(Drawable who) {
+        }
+
+        @Override
+        public void scheduleDrawable(Drawable who, Runnable what, long when) {
+        }
+
+        @Override
+        public void unscheduleDrawable(Drawable who, Runnable what) {
+        }
+    };
+
+    private BouncyTextScope mScope;
+    private BouncyTextDrawable mDrawable;
+
+    @Before
+    public void setUp() {
+        mScope = new BouncyTextScope();
+        mDrawable = new BouncyTextDrawable(mScope);
+        mDrawable.setTextSize(40);
+        mDrawable.setCallback(mCallback);
+    }
+
+    @Test
+    public void returnsStoresToTheScopeWhenHidden() {
+        mDrawable.setText("12");
+        final TransitionResources resources = mScope.getTransitionResources();
+        final int pooledCount = resources.getPooledStoreCount();
+
+        mDrawable.setVisible(false, false);
+        assertEquals(pooledCount + 3, resources.getPooledStoreCount());
+
+        mDrawable.setVisible(true, false);
+        assertEquals(pooledCount, resources.getPooledStoreCount());
+        assertEquals("12", mDrawable.getText().toString());
+    }
+
+}
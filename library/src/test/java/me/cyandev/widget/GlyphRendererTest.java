@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2017 Cyandev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.cyandev.widget;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.text.TextPaint;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import me.cyandev.widget.core.GlyphAdvances;
+import me.cyandev.widget.core.TransitionEngine;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+public class GlyphRendererTest {
+
+    private static final float TRAVEL = 20;
+
+    private static final GlyphAdvances ADVANCES = new GlyphAdvances() {
+        @Override
+        public float getAdvance(char ch) {
+            return 10;
+        }
+    };
+
+    private final TextPaint mTextPaint = new TextPaint();
+    private final Paint.FontMetrics mFontMetrics = new Paint.FontMetrics();
+    private Canvas mCanvas;
+
+    @Before
+    public void setUp() {
+        mTextPaint.setTextSize(16);
+        mFontMetrics.top = -16;
+        mFontMetrics.bottom = TRAVEL + mFontMetrics.top;
+        mCanvas = new Canvas(Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888));
+    }
+
+    @Test
+    public void sharesDigitStripsUntilReleased() {
+        final GlyphRenderer first = new GlyphRenderer(mTextPaint);
+        final GlyphRenderer second = new GlyphRenderer(mTextPaint);
+        drawRollingDigit(first);
+        drawRollingDigit(second);
+        assertEquals(1, DigitStrip.getCount());
+
+        first.releaseBitmaps();
+        assertEquals(1, DigitStrip.getCount());
+        second.releaseBitmaps();
+        assertEquals(0, DigitStrip.getCount());
+        // Releasing again does not give up the references of others.
+        second.releaseBitmaps();
+        assertEquals(0, DigitStrip.getCount());
+    }
+
+    private void drawRollingDigit(GlyphRenderer renderer) {
+        final TransitionEngine engine = new TransitionEngine();
+        engine.setRolling(true);
+        engine.layout("1", ADVANCES);
+        engine.transit(0, TRAVEL, false);
+        engine.layout("2", ADVANCES);
+        engine.transit(0, TRAVEL, true);
+        assertTrue(engine.getGlyphs().rolling[0]);
+
+        renderer.drawGlyphs(mCanvas, engine.getGlyphs(), mFontMetrics, null, null, false);
+    }
+
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2017 Cyandev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.cyandev.widget;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class NumeralBufferTest {
+
+    private final NumeralBuffer mBuffer = new NumeralBuffer();
+
+    @Test
+    public void formatsLongs() {
+        assertEquals("0", formatLong(0, (char) 0, false));
+        assertEquals("0", formatLong(0, (char) 0, true));
+        assertEquals("7", formatLong(7, (char) 0, false));
+        assertEquals("-7", formatLong(-7, (char) 0, false));
+        assertEquals("+7", formatLong(7, (char) 0, true));
+        assertEquals("-7", formatLong(-7, (char) 0, true));
+        assertEquals("1234567", formatLong(1234567, (char) 0, false));
+    }
+
+    @Test
+    public void groupsIntegerDigits() {
+        assertEquals("999", formatLong(999, ',', false));
+        assertEquals("1,000", formatLong(1000, ',', false));
+        assertEquals("-100,000", formatLong(-100000, ',', false));
+        assertEquals("+1 234 567", formatLong(1234567, ' ', true));
+    }
+
+    @Test
+    public void formatsLongExtremes() {
+        assertEquals(String.valueOf(Long.MAX_VALUE), formatLong(Long.MAX_VALUE, (char) 0, false));
+        assertEquals(String.valueOf(Long.MIN_VALUE), formatLong(Long.MIN_VALUE, (char) 0, false));
+        assertEquals("-9,223,372,036,854,775,808", formatLong(Long.MIN_VALUE, ',', true));
+    }
+
+    @Test
+    public void roundsDoublesHalfUp() {
+        assertEquals("1.23", formatDouble(1.234, 2));
+        assertEquals("1.24", formatDouble(1.235, 2));
+        assertEquals("-1.24", formatDouble(-1.235, 2));
+        assertEquals("3", formatDouble(2.5, 0));
+        assertEquals("-3", formatDouble(-2.5, 0));
+        assertEquals("10.0", formatDouble(9.96, 1));
+        assertEquals("0.050", formatDouble(0.05, 3));
+    }
+
+    @Test
+    public void dropsTheSignOfValuesRoundedToZero() {
+        assertEquals("0.00", formatDouble(-0.001, 2));
+        assertEquals("0", formatDouble(-0.0, 0));
+        assertEquals(0, NumeralBuffer.scale(-0.001, 2));
+    }
+
+    @Test
+    public void formatsFractionsWithSeparators() {
+        mBuffer.setDouble(-1234.5, 2, '.', ',', false);
+        assertEquals("-1.234,50", mBuffer.toString());
+        mBuffer.setDouble(0.5, 1, ',', '.', true);
+        assertEquals("+0.5", mBuffer.toString());
+    }
+
+    @Test
+    public void formatsScaledValues() {
+        mBuffer.setScaled(12345, 2, (char) 0, '.', false);
+        assertEquals("123.45", mBuffer.toString());
+        mBuffer.setScaled(-5, 3, (char) 0, '.', false);
+        assertEquals("-0.005", mBuffer.toString());
+        mBuffer.setScaled(Long.MIN_VALUE, NumeralBuffer.MAX_PRECISION, (char) 0, '.', false);
+        assertEquals("-9.223372036854775808", mBuffer.toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNegativePrecisions() {
+        NumeralBuffer.scale(1, -1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsPrecisionsAboveTheMax() {
+        mBuffer.setScaled(1, NumeralBuffer.MAX_PRECISION + 1, (char) 0, '.', false);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsValuesOutOfRange() {
+        NumeralBuffer.scale(1e18, 2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNaN() {
+        NumeralBuffer.scale(Double.NaN, 0);
+    }
+
+    @Test
+    public void behavesAsACharSequence() {
+        mBuffer.setLong(-42, (char) 0, false);
+        assertEquals(3, mBuffer.length());
+        assertEquals('-', mBuffer.charAt(0));
+        assertEquals("42", mBuffer.subSequence(1, 3).toString());
+        try {
+            mBuffer.charAt(3);
+            fail();
+        } catch (IndexOutOfBoundsException expected) {
+            // Past the formatted chars.
+        }
+    }
+
+    private String formatLong(long value, char groupingSeparator, boolean showPositiveSign) {
+        mBuffer.setLong(value, groupingSeparator, showPositiveSign);
+        return mBuffer.toString();
+    }
+
+    private String formatDouble(double value, int precision) {
+        mBuffer.setDouble(value, precision, (char) 0, '.', false);
+        return mBuffer.toString();
+    }
+
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2017 Cyandev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.cyandev.widget;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ValueMailboxTest {
+
+    @Test
+    public void startsEmpty() {
+        assertEquals(ValueMailbox.EMPTY, new ValueMailbox().take());
+    }
+
+    @Test
+    public void keepsTheLatestValueOnly() {
+        final ValueMailbox mailbox = new ValueMailbox();
+        assertTrue(mailbox.publish(1, 0));
+        assertFalse(mailbox.publish(2, 0));
+        assertFalse(mailbox.publish(3, 1));
+
+        final long packed = mailbox.take();
+        assertEquals(3, ValueMailbox.scaledOf(packed));
+        assertEquals(1, ValueMailbox.precisionOf(packed));
+        assertEquals(ValueMailbox.EMPTY, mailbox.take());
+        assertTrue(mailbox.publish(4, 0));
+    }
+
+    @Test
+    public void packsTheWholeRange() {
+        final long[] values = { 0, 1, -1, 123456789, -987654321, ValueMailbox.MAX_SCALED,
+                -ValueMailbox.MAX_SCALED };
+        final ValueMailbox mailbox = new ValueMailbox();
+        for (long value : values) {
+            for (int precision = 0; precision <= NumeralBuffer.MAX_PRECISION; precision++) {
+                mailbox.publish(value, precision);
+                final long packed = mailbox.take();
+                assertNotEquals(ValueMailbox.EMPTY, packed);
+                assertEquals(value, ValueMailbox.scaledOf(packed));
+                assertEquals(precision, ValueMailbox.precisionOf(packed));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsValuesAboveTheRange() {
+        new ValueMailbox().publish(ValueMailbox.MAX_SCALED + 1, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsValuesBelowTheRange() {
+        new ValueMailbox().publish(-ValueMailbox.MAX_SCALED - 1, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsPrecisionsAboveTheMax() {
+        new ValueMailbox().publish(1, NumeralBuffer.MAX_PRECISION + 1);
+    }
+
+}